@@ -0,0 +1,68 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.ConnectionPool;
+import de.hitec.nhplus.datastorage.SchemaMigrator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Temporary SQLite database with the current schema for the benchmarks. The database file is created in the
+ * temporary directory and deleted together with its WAL files by <code>close()</code>.
+ */
+class BenchmarkDatabase implements AutoCloseable {
+
+    private final Path file;
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Creates an empty database and migrates it to the latest version.
+     */
+    BenchmarkDatabase() throws IOException, SQLException {
+        this.file = Files.createTempFile("nhplus-benchmark", ".db");
+        this.connectionPool = new ConnectionPool("jdbc:sqlite:" + this.file, ConnectionPool.defaultReaderCount());
+        SchemaMigrator.migrate(this.connectionPool);
+    }
+
+    ConnectionPool getConnectionPool() {
+        return this.connectionPool;
+    }
+
+    /**
+     * Inserts the given number of patients with the ids 1 to <code>count</code> into the empty database.
+     */
+    void insertPatients(int count) throws SQLException {
+        execute("WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + count + ") " +
+                "INSERT INTO patient (firstname, surname, dateOfBirth, carelevel, roomnumber, assets) " +
+                "SELECT 'Vorname' || i, 'Nachname' || i, -10000 + i % 15000, 1 + i % 5, i % 400, 'normal' FROM n");
+    }
+
+    /**
+     * Inserts the given number of treatments, which are spread over the given number of patients and 1000 days.
+     */
+    void insertTreatments(int count, int patientCount) throws SQLException {
+        execute("WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + count + ") " +
+                "INSERT INTO treatment (pid, treatment_date, begin, end, description, remark) " +
+                "SELECT 1 + i % " + patientCount + ", 19000 + i % 1000, 480 + i % 600, 540 + i % 600, " +
+                "'Behandlung ' || i, 'Bemerkung zur Behandlung ' || i FROM n");
+    }
+
+    private void execute(String sql) throws SQLException {
+        this.connectionPool.executeInTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sql);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.connectionPool.close();
+        Files.deleteIfExists(this.file);
+        Files.deleteIfExists(Path.of(this.file + "-wal"));
+        Files.deleteIfExists(Path.of(this.file + "-shm"));
+    }
+}
@@ -0,0 +1,41 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.DaoMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead, which the metrics add to every call of a DAO, with one thread and with several threads
+ * recording the same operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoMetricsBenchmark {
+
+    private final DaoMetrics.Operation operation = DaoMetrics.of("DaoMetricsBenchmark").operation("record");
+
+    @Benchmark
+    public void record() {
+        this.operation.start().finish(1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        this.operation.start().finish(1);
+    }
+}
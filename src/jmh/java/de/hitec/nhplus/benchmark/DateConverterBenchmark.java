@@ -0,0 +1,102 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.utils.DateConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the parsing and formatting of <code>DateConverter</code> with <code>DateTimeFormatter</code>. The
+ * <code>...PerCall</code> variants create the formatter with <code>ofPattern()</code> on every call, exactly like
+ * <code>DateConverter</code> did before; the <code>...WithFormatter</code> variants reuse one formatter and show
+ * how much of that was only the creation of the formatter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateConverterBenchmark {
+
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private static final String TIME_PATTERN = "HH:mm";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(TIME_PATTERN);
+
+    private final String dateText = "2023-06-03";
+    private final String timeText = "11:45";
+    private final LocalDate date = LocalDate.of(2023, 6, 3);
+    private final LocalTime time = LocalTime.of(11, 45);
+
+    @Benchmark
+    public LocalDate parseDate() {
+        return DateConverter.convertStringToLocalDate(this.dateText);
+    }
+
+    @Benchmark
+    public LocalDate parseDateWithFormatter() {
+        return LocalDate.parse(this.dateText, DATE_FORMATTER);
+    }
+
+    @Benchmark
+    public LocalDate parseDatePerCall() {
+        return LocalDate.parse(this.dateText, DateTimeFormatter.ofPattern(DATE_PATTERN));
+    }
+
+    @Benchmark
+    public LocalTime parseTime() {
+        return DateConverter.convertStringToLocalTime(this.timeText);
+    }
+
+    @Benchmark
+    public LocalTime parseTimeWithFormatter() {
+        return LocalTime.parse(this.timeText, TIME_FORMATTER);
+    }
+
+    @Benchmark
+    public LocalTime parseTimePerCall() {
+        return LocalTime.parse(this.timeText, DateTimeFormatter.ofPattern(TIME_PATTERN));
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return DateConverter.convertLocalDateToString(this.date);
+    }
+
+    @Benchmark
+    public String formatDateWithFormatter() {
+        return this.date.format(DATE_FORMATTER);
+    }
+
+    @Benchmark
+    public String formatDatePerCall() {
+        return this.date.format(DateTimeFormatter.ofPattern(DATE_PATTERN));
+    }
+
+    @Benchmark
+    public String formatTime() {
+        return DateConverter.convertLocalTimeToString(this.time);
+    }
+
+    @Benchmark
+    public String formatTimeWithFormatter() {
+        return this.time.format(TIME_FORMATTER);
+    }
+
+    @Benchmark
+    public String formatTimePerCall() {
+        return this.time.format(DateTimeFormatter.ofPattern(TIME_PATTERN));
+    }
+}
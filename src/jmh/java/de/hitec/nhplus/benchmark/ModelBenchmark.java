@@ -0,0 +1,45 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of the model objects, which every read of the DAOs creates once per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+    private final LocalDate date = LocalDate.of(2023, 6, 3);
+    private final LocalTime begin = LocalTime.of(11, 0);
+    private final LocalTime end = LocalTime.of(12, 30);
+    private long id;
+
+    @Benchmark
+    public Patient createPatient() {
+        return new Patient(++this.id, "Seppl", "Herberger", this.date, "4", "202", "vermögend");
+    }
+
+    @Benchmark
+    public Treatment createTreatment() {
+        return new Treatment(++this.id, 1, this.date, this.begin, this.end, "Gespräch",
+                "Der Patient hat enorme Angstgefühle.");
+    }
+}
@@ -0,0 +1,99 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.IdentityMap;
+import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CRUD operations of <code>PatientDao</code> on a temporary database with 10,000 patients.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientDaoBenchmark {
+
+    private static final int PATIENT_COUNT = 10_000;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final LocalDate dateOfBirth = LocalDate.of(1945, 12, 1);
+    private BenchmarkDatabase database;
+    private IdentityMap<Patient> cache;
+    private PatientDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        this.database = new BenchmarkDatabase();
+        this.database.insertPatients(PATIENT_COUNT);
+        this.cache = new IdentityMap<>(PatientDao.DEFAULT_CACHE_CAPACITY);
+        this.dao = new PatientDao(this.database.getConnectionPool(), this.cache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.database.close();
+    }
+
+    @Benchmark
+    public Patient create() throws SQLException {
+        return this.dao.create(newPatient());
+    }
+
+    /**
+     * Reads a patient from the database. The patient is removed from the identity map before, so the query is
+     * measured and not the map.
+     */
+    @Benchmark
+    public Patient read() throws SQLException {
+        long pid = nextPid();
+        this.cache.invalidate(pid);
+        return this.dao.read(pid);
+    }
+
+    @Benchmark
+    public Patient readCached() throws SQLException {
+        return this.dao.read(nextPid());
+    }
+
+    @Benchmark
+    public void update() throws SQLException {
+        Patient patient = new Patient(nextPid(), "Seppl", "Herberger", this.dateOfBirth, "4", "202", "vermögend");
+        this.dao.update(patient);
+    }
+
+    /**
+     * Creates a patient and deletes it again, so the table keeps its size.
+     */
+    @Benchmark
+    public void createAndDelete() throws SQLException {
+        this.dao.deleteById(this.dao.create(newPatient()).getPid());
+    }
+
+    private Patient newPatient() {
+        return new Patient("Seppl", "Herberger", this.dateOfBirth, "4", "202", "vermögend");
+    }
+
+    private long nextPid() {
+        return 1 + this.random.nextInt(PATIENT_COUNT);
+    }
+}
@@ -0,0 +1,69 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.utils.PatientSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the search index of the patient table and searching it with a selective and an unselective
+ * prefix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientSearchIndexBenchmark {
+
+    private static final String[] SURNAMES = {"Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer",
+            "Wagner", "Becker", "Schulz", "Hoffmann", "Schäfer", "Koch", "Bauer", "Richter", "Klein", "Wolf"};
+
+    @Param({"50000"})
+    private int patientCount;
+
+    private List<Patient> patients;
+    private PatientSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.patients = new ArrayList<>(this.patientCount);
+        for (int i = 1; i <= this.patientCount; i++) {
+            this.patients.add(new Patient(i, "Vorname" + i, SURNAMES[i % SURNAMES.length] + i / SURNAMES.length,
+                    LocalDate.of(1945, 12, 1), "3", String.valueOf(i % 400), "normal"));
+        }
+        this.index = new PatientSearchIndex(this.patients);
+    }
+
+    @Benchmark
+    public PatientSearchIndex build() {
+        return new PatientSearchIndex(this.patients);
+    }
+
+    @Benchmark
+    public Set<Long> searchSelective() {
+        return this.index.search("mueller12");
+    }
+
+    @Benchmark
+    public Set<Long> searchUnselective() {
+        return this.index.search("sch");
+    }
+}
@@ -0,0 +1,68 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.datastorage.TreatmentDao;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures <code>readAll()</code> of the patients and the treatments for tables of different sizes. Each table has
+ * as many rows as given by the parameter.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadAllBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private PatientDao patientDao;
+    private TreatmentDao treatmentDao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        this.database = new BenchmarkDatabase();
+        this.database.insertPatients(this.rows);
+        this.database.insertTreatments(this.rows, this.rows);
+        this.patientDao = new PatientDao(this.database.getConnectionPool());
+        this.treatmentDao = new TreatmentDao(this.database.getConnectionPool());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.database.close();
+    }
+
+    @Benchmark
+    public List<Patient> readAllPatients() throws SQLException {
+        return this.patientDao.readAll();
+    }
+
+    @Benchmark
+    public List<Treatment> readAllTreatments() throws SQLException {
+        return this.treatmentDao.readAll();
+    }
+}
@@ -0,0 +1,73 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.StatementCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a query by primary key with a statement of the <code>StatementCache</code> and with a statement, which is
+ * compiled for every query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementCacheBenchmark {
+
+    private static final String SQL = "SELECT * FROM patient WHERE pid = ?";
+
+    private BenchmarkDatabase database;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        this.database = new BenchmarkDatabase();
+        this.database.insertPatients(1_000);
+        this.connection = this.database.getConnectionPool().acquireReader();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.database.getConnectionPool().release(this.connection);
+        this.database.close();
+    }
+
+    @Benchmark
+    public void queryWithCachedStatement(Blackhole blackhole) throws SQLException {
+        PreparedStatement statement = StatementCache.of(this.connection).prepare(SQL);
+        statement.setLong(1, 42);
+        try (ResultSet result = statement.executeQuery()) {
+            blackhole.consume(result.next() ? result.getString(2) : null);
+        }
+    }
+
+    @Benchmark
+    public void queryWithNewStatement(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = this.connection.prepareStatement(SQL)) {
+            statement.setLong(1, 42);
+            try (ResultSet result = statement.executeQuery()) {
+                blackhole.consume(result.next() ? result.getString(2) : null);
+            }
+        }
+    }
+}
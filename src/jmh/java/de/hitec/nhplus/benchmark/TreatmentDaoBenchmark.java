@@ -0,0 +1,95 @@
+package de.hitec.nhplus.benchmark;
+
+import de.hitec.nhplus.datastorage.TreatmentDao;
+import de.hitec.nhplus.model.Treatment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CRUD operations of <code>TreatmentDao</code> on a temporary database with 1,000 patients and 100,000
+ * treatments. The writes include the triggers of the full-text search and of the care minutes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreatmentDaoBenchmark {
+
+    private static final int PATIENT_COUNT = 1_000;
+    private static final int TREATMENT_COUNT = 100_000;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final LocalDate date = LocalDate.of(2023, 6, 3);
+    private final LocalTime begin = LocalTime.of(11, 0);
+    private final LocalTime end = LocalTime.of(12, 30);
+    private BenchmarkDatabase database;
+    private TreatmentDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        this.database = new BenchmarkDatabase();
+        this.database.insertPatients(PATIENT_COUNT);
+        this.database.insertTreatments(TREATMENT_COUNT, PATIENT_COUNT);
+        this.dao = new TreatmentDao(this.database.getConnectionPool());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.database.close();
+    }
+
+    @Benchmark
+    public Treatment create() throws SQLException {
+        return this.dao.create(newTreatment());
+    }
+
+    @Benchmark
+    public Treatment read() throws SQLException {
+        return this.dao.read(1 + this.random.nextInt(TREATMENT_COUNT));
+    }
+
+    @Benchmark
+    public List<Treatment> readTreatmentsByPid() throws SQLException {
+        return this.dao.readTreatmentsByPid(1 + this.random.nextInt(PATIENT_COUNT));
+    }
+
+    @Benchmark
+    public void update() throws SQLException {
+        Treatment treatment = new Treatment(1 + this.random.nextInt(TREATMENT_COUNT), 1, this.date, this.begin,
+                this.end, "Gespräch", "Patient beruhigt sich.");
+        this.dao.update(treatment);
+    }
+
+    /**
+     * Creates a treatment and deletes it again, so the table keeps its size.
+     */
+    @Benchmark
+    public void createAndDelete() throws SQLException {
+        this.dao.deleteById(this.dao.create(newTreatment()).getTid());
+    }
+
+    private Treatment newTreatment() {
+        return new Treatment(1 + this.random.nextInt(PATIENT_COUNT), this.date, this.begin, this.end, "Gespräch",
+                "Patient beruhigt sich.");
+    }
+}
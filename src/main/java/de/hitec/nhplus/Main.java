@@ -1,15 +1,19 @@
 package de.hitec.nhplus;
 
 import de.hitec.nhplus.datastorage.ConnectionBuilder;
+import de.hitec.nhplus.datastorage.DaoFactory;
 
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.sql.SQLException;
 
 public class Main extends Application {
 
@@ -33,7 +37,20 @@ public class Main extends Application {
             this.primaryStage.show();
 
             this.primaryStage.setOnCloseRequest(event -> {
-                ConnectionBuilder.closeConnection();
+                SQLException exception = DaoFactory.getDaoFactory().getPatientUpdateQueue().close();
+                if (exception != null) {
+                    exception.printStackTrace();
+                    Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                    alert.setTitle("Fehler");
+                    alert.setHeaderText("Änderungen konnten nicht gespeichert werden!");
+                    alert.setContentText(exception.getMessage() + "\n\nTrotzdem beenden? Die Änderungen gehen dabei verloren.");
+                    if (alert.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+                        // The changes stay in the queue, closing the window again retries to write them.
+                        event.consume();
+                        return;
+                    }
+                }
+                ConnectionBuilder.closeConnectionPool();
                 Platform.exit();
                 System.exit(0);
             });
@@ -1,23 +1,43 @@
 package de.hitec.nhplus.controller;
 
+import de.hitec.nhplus.datastorage.AsyncDao;
 import de.hitec.nhplus.datastorage.DaoFactory;
+import de.hitec.nhplus.datastorage.Exporter;
+import de.hitec.nhplus.datastorage.Importer;
 import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.datastorage.PatientUpdateQueue;
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.stage.FileChooser;
 import de.hitec.nhplus.model.Patient;
 import de.hitec.nhplus.utils.DateConverter;
+import de.hitec.nhplus.utils.PatientSearchIndex;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -55,6 +75,12 @@ public class AllPatientController {
     @FXML
     private Button buttonAdd;
 
+    @FXML
+    private Button buttonImport;
+
+    @FXML
+    private Button buttonExport;
+
     @FXML
     private TextField textFieldSurname;
 
@@ -73,8 +99,19 @@ public class AllPatientController {
     @FXML
     private TextField textFieldAssets;
 
+    @FXML
+    private TextField textFieldSearch;
+
+    private static final int MAX_SHOWN_REJECTED_LINES = 10;
+
     private final ObservableList<Patient> patients = FXCollections.observableArrayList();
-    private PatientDao dao;
+    private final FilteredList<Patient> filteredPatients = new FilteredList<>(this.patients);
+    private PatientSearchIndex searchIndex = new PatientSearchIndex(List.of());
+    private boolean searchIndexReplaced;
+    private AsyncDao<Patient, PatientDao> dao;
+    private PatientUpdateQueue updateQueue;
+    private TableLoader tableLoader;
+    private ChangeFeedBinding<Patient> changeFeedBinding;
 
     /**
      * When <code>initialize()</code> gets called, all fields are already initialized. For example from the FXMLLoader
@@ -82,6 +119,12 @@ public class AllPatientController {
      * configured.
      */
     public void initialize() {
+        this.updateQueue = DaoFactory.getDaoFactory().getPatientUpdateQueue();
+        this.updateQueue.setErrorHandler(this::handleUpdateError);
+        this.dao = DaoFactory.getDaoFactory().createAsyncPatientDao();
+        this.tableLoader = new TableLoader(this.tableView);
+        this.changeFeedBinding = new ChangeFeedBinding<>(DaoFactory.getDaoFactory().getChangeFeed(), "patient",
+                this.patients, Patient::getPid, this::readPatients, this.tableView);
         this.readAllAndShowInTableView();
 
         this.columnId.setCellValueFactory(new PropertyValueFactory<>("pid"));
@@ -107,7 +150,11 @@ public class AllPatientController {
         this.columnAssets.setCellFactory(TextFieldTableCell.forTableColumn());
 
         //Anzeigen der Daten
-        this.tableView.setItems(this.patients);
+        SortedList<Patient> sortedPatients = new SortedList<>(this.filteredPatients);
+        sortedPatients.comparatorProperty().bind(this.tableView.comparatorProperty());
+        this.tableView.setItems(sortedPatients);
+        this.patients.addListener(this::updateSearchIndex);
+        this.textFieldSearch.textProperty().addListener((observableValue, oldText, newText) -> applySearch());
 
         this.buttonDelete.setDisable(true);
         this.tableView.getSelectionModel().selectedItemProperty().addListener(new ChangeListener<Patient>() {
@@ -136,7 +183,7 @@ public class AllPatientController {
     @FXML
     public void handleOnEditFirstname(TableColumn.CellEditEvent<Patient, String> event) {
         event.getRowValue().setFirstName(event.getNewValue());
-        this.doUpdate(event);
+        this.doUpdate(event, PatientDao.Column.FIRSTNAME);
     }
 
     /**
@@ -147,7 +194,7 @@ public class AllPatientController {
     @FXML
     public void handleOnEditSurname(TableColumn.CellEditEvent<Patient, String> event) {
         event.getRowValue().setSurname(event.getNewValue());
-        this.doUpdate(event);
+        this.doUpdate(event, PatientDao.Column.SURNAME);
     }
 
     /**
@@ -157,8 +204,16 @@ public class AllPatientController {
      */
     @FXML
     public void handleOnEditDateOfBirth(TableColumn.CellEditEvent<Patient, String> event) {
+        try {
+            DateConverter.convertStringToLocalDate(event.getNewValue());
+        } catch (DateTimeParseException exception) {
+            // Invalid dates are not stored. Setting the old value again makes the cell show it.
+            event.getRowValue().setDateOfBirth(event.getNewValue());
+            event.getRowValue().setDateOfBirth(event.getOldValue());
+            return;
+        }
         event.getRowValue().setDateOfBirth(event.getNewValue());
-        this.doUpdate(event);
+        this.doUpdate(event, PatientDao.Column.DATE_OF_BIRTH);
     }
 
     /**
@@ -169,7 +224,7 @@ public class AllPatientController {
     @FXML
     public void handleOnEditCareLevel(TableColumn.CellEditEvent<Patient, String> event) {
         event.getRowValue().setCareLevel(event.getNewValue());
-        this.doUpdate(event);
+        this.doUpdate(event, PatientDao.Column.CARE_LEVEL);
     }
 
     /**
@@ -180,7 +235,7 @@ public class AllPatientController {
     @FXML
     public void handleOnEditRoomNumber(TableColumn.CellEditEvent<Patient, String> event){
         event.getRowValue().setRoomNumber(event.getNewValue());
-        this.doUpdate(event);
+        this.doUpdate(event, PatientDao.Column.ROOM_NUMBER);
     }
 
     /**
@@ -191,34 +246,115 @@ public class AllPatientController {
     @FXML
     public void handleOnEditAssets(TableColumn.CellEditEvent<Patient, String> event){
         event.getRowValue().setAssets(event.getNewValue());
-        this.doUpdate(event);
+        this.doUpdate(event, PatientDao.Column.ASSETS);
     }
 
     /**
-     * Updates a patient by calling the method <code>update()</code> of {@link PatientDao}.
+     * Passes the changed column of a patient to the {@link PatientUpdateQueue}. The queue collects the changes of
+     * several cells and writes them together, when the user pauses editing or leaves the view.
      *
      * @param event Event including the changed object and the change.
+     * @param column Column of the changed cell.
      */
-    private void doUpdate(TableColumn.CellEditEvent<Patient, String> event) {
-        try {
-            this.dao.update(event.getRowValue());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+    private void doUpdate(TableColumn.CellEditEvent<Patient, String> event, PatientDao.Column column) {
+        this.updateQueue.add(event.getRowValue().getPid(), column, event.getNewValue());
+        this.searchIndex.put(event.getRowValue());
+    }
+
+    /**
+     * Keeps the search index current, when patients are added to, replaced in or removed from the list.
+     *
+     * @param change Change of the list of all patients.
+     */
+    private void updateSearchIndex(ListChangeListener.Change<? extends Patient> change) {
+        if (this.searchIndexReplaced) {
+            // The whole list was replaced together with an index, which already contains the new patients.
+            return;
         }
+        while (change.next()) {
+            for (Patient patient : change.getRemoved()) {
+                this.searchIndex.remove(patient.getPid());
+            }
+            for (Patient patient : change.getAddedSubList()) {
+                this.searchIndex.put(patient);
+            }
+        }
+        applySearch();
+    }
+
+    /**
+     * Filters the table by the text of the search field. The matching patients are looked up in the search index, so
+     * the filter only checks, whether the id of each patient is in the result.
+     */
+    private void applySearch() {
+        String text = this.textFieldSearch.getText();
+        if (text == null || text.isBlank()) {
+            this.filteredPatients.setPredicate(null);
+        } else {
+            Set<Long> pids = this.searchIndex.search(text);
+            this.filteredPatients.setPredicate(patient -> pids.contains(patient.getPid()));
+        }
+    }
+
+    /**
+     * Shows the error of a failed write of the {@link PatientUpdateQueue} and reloads the table, so it shows the
+     * persisted state again.
+     *
+     * @param exception Error of the failed write.
+     */
+    private void handleUpdateError(SQLException exception) {
+        exception.printStackTrace();
+        Platform.runLater(() -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Fehler");
+            alert.setHeaderText("Änderungen konnten nicht gespeichert werden!");
+            alert.setContentText(exception.getMessage());
+            alert.showAndWait();
+            this.readAllAndShowInTableView();
+        });
     }
 
     /**
      * Reloads all patients to the table by clearing the list of all patients and filling it again by all persisted
-     * patients, delivered by {@link PatientDao}.
+     * patients, delivered by {@link PatientDao}. The patients are read in the background, a reload, which is still
+     * running, is cancelled.
      */
     private void readAllAndShowInTableView() {
         this.patients.clear();
-        this.dao = DaoFactory.getDaoFactory().createPatientDAO();
-        try {
-            this.patients.addAll(this.dao.readAll());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        // The search index is built in the background together with reading the patients.
+        this.tableLoader.load(this.dao.call(dao -> {
+            List<Patient> patients = dao.readAll();
+            return Map.entry(patients, new PatientSearchIndex(patients));
+        }), result -> {
+            this.searchIndex = result.getValue();
+            this.searchIndexReplaced = true;
+            try {
+                this.patients.setAll(result.getKey());
+            } finally {
+                this.searchIndexReplaced = false;
+            }
+            applySearch();
+        });
+    }
+
+    /**
+     * Reads the patients with the given ids in the background. They are read from the database and not from the
+     * identity map, because the change feed only reports rows, which were changed in the database.
+     *
+     * @param pids Ids of the patients.
+     * @return Future of the found patients.
+     */
+    private CompletableFuture<List<Patient>> readPatients(Set<Long> pids) {
+        return this.dao.call(dao -> {
+            List<Patient> patients = new ArrayList<>(pids.size());
+            for (long pid : pids) {
+                Patient patient = dao.reload(pid);
+                if (patient != null) {
+                    patients.add(patient);
+                }
+            }
+            return patients;
+        });
     }
 
     /**
@@ -228,38 +364,172 @@ public class AllPatientController {
      */
     @FXML
     public void handleDelete() {
-        Patient selectedItem = this.tableView.getSelectionModel().getSelectedItem();
-        if (selectedItem != null) {
-            try {
-                DaoFactory.getDaoFactory().createPatientDAO().deleteById(selectedItem.getPid());
-                this.tableView.getItems().remove(selectedItem);
-            } catch (SQLException exception) {
-                exception.printStackTrace();
+        UiActionEvent action = UiActionEvent.begin(this, "handleDelete");
+        try {
+            Patient selectedItem = this.tableView.getSelectionModel().getSelectedItem();
+            if (selectedItem != null) {
+                this.dao.deleteById(selectedItem.getPid()).whenComplete((result, exception) -> {
+                    if (exception == null) {
+                        this.patients.remove(selectedItem);
+                    } else {
+                        showError("Patient konnte nicht gelöscht werden!", exception);
+                    }
+                });
             }
+        } finally {
+            action.finish();
         }
     }
 
+    /**
+     * Shows the error of a failed write of the table.
+     *
+     * @param header Text, which tells the user what failed.
+     * @param exception Error of the failed write.
+     */
+    private void showError(String header, Throwable exception) {
+        exception.printStackTrace();
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Fehler");
+        alert.setHeaderText(header);
+        alert.setContentText(exception.getMessage());
+        alert.showAndWait();
+    }
+
     /**
      * This method handles the events fired by the button to add a patient. It collects the data from the
      * <code>TextField</code>s, creates an object of class <code>Patient</code> of it and passes the object to
-     * {@link PatientDao} to persist the data.
+     * {@link PatientDao} to persist the data. The persisted patient is appended to the table, without reloading it,
+     * and the text fields are cleared. If it cannot be persisted, the error is shown and the input is kept.
      */
     @FXML
     public void handleAdd() {
-        String surname = this.textFieldSurname.getText();
-        String firstName = this.textFieldFirstName.getText();
-        String birthday = this.textFieldDateOfBirth.getText();
-        LocalDate date = DateConverter.convertStringToLocalDate(birthday);
-        String careLevel = this.textFieldCareLevel.getText();
-        String roomNumber = this.textFieldRoomNumber.getText();
-        String assets = this.textFieldAssets.getText();
+        UiActionEvent action = UiActionEvent.begin(this, "handleAdd");
         try {
-            this.dao.create(new Patient(firstName, surname, date, careLevel, roomNumber, assets));
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+            String surname = this.textFieldSurname.getText();
+            String firstName = this.textFieldFirstName.getText();
+            String birthday = this.textFieldDateOfBirth.getText();
+            LocalDate date = DateConverter.convertStringToLocalDate(birthday);
+            String careLevel = this.textFieldCareLevel.getText();
+            String roomNumber = this.textFieldRoomNumber.getText();
+            String assets = this.textFieldAssets.getText();
+            this.dao.create(new Patient(firstName, surname, date, careLevel, roomNumber, assets))
+                    .whenComplete((patient, exception) -> {
+                        if (exception == null) {
+                            this.changeFeedBinding.upsert(patient);
+                            clearTextfields();
+                        } else {
+                            // The input stays in the text fields, so the user can try again.
+                            showError("Patient konnte nicht angelegt werden!", exception);
+                        }
+                    });
+        } finally {
+            action.finish();
+        }
+    }
+
+    /**
+     * Imports the patients of a CSV file chosen by the user. The import runs in the background, the imported patients
+     * are shown by the change feed. At the end, the number of imported patients and the first rejected lines are
+     * shown.
+     */
+    @FXML
+    public void handleImport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Patienten importieren");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.csv.gz"));
+        File file = fileChooser.showOpenDialog(this.tableView.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        Importer importer = DaoFactory.getDaoFactory().createImporter();
+        this.buttonImport.setDisable(true);
+        Thread.ofVirtual().start(() -> {
+            try {
+                Importer.Result result = importer.importPatients(file.toPath());
+                StringBuilder content = new StringBuilder(result.getImportedRows() + " Patienten wurden importiert, " +
+                        result.getRejectedRows() + " Zeilen abgelehnt.");
+                for (Importer.RejectedLine rejectedLine : result.getRejectedLines().subList(0,
+                        Math.min(MAX_SHOWN_REJECTED_LINES, result.getRejectedLines().size()))) {
+                    content.append('\n').append(rejectedLine);
+                }
+                Platform.runLater(() -> showImportResult(Alert.AlertType.INFORMATION, "Import abgeschlossen",
+                        content.toString()));
+            } catch (SQLException | IOException exception) {
+                exception.printStackTrace();
+                Platform.runLater(() -> showImportResult(Alert.AlertType.ERROR, "Import fehlgeschlagen",
+                        exception.getMessage()));
+            }
+        });
+    }
+
+    private void showImportResult(Alert.AlertType alertType, String header, String content) {
+        this.buttonImport.setDisable(false);
+        Alert alert = new Alert(alertType);
+        alert.setTitle("Import");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
+    /**
+     * Exports all patients to a file chosen by the user. The format is taken from the extension of the file. The
+     * export runs in the background and shows its progress on the button.
+     */
+    @FXML
+    public void handleExport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Patienten exportieren");
+        Map<String, Exporter.Format> formatsByExtension = new LinkedHashMap<>();
+        for (Exporter.Format format : Exporter.Format.values()) {
+            formatsByExtension.put(Exporter.fileName("", format, false), format);
+            formatsByExtension.put(Exporter.fileName("", format, true), format);
+        }
+        for (String extension : formatsByExtension.keySet()) {
+            fileChooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter(extension.substring(1), "*" + extension));
         }
-        readAllAndShowInTableView();
-        clearTextfields();
+        fileChooser.setInitialFileName("patienten");
+        File chosenFile = fileChooser.showSaveDialog(this.tableView.getScene().getWindow());
+        if (chosenFile == null) {
+            return;
+        }
+        String extension = formatsByExtension.keySet().stream().filter(chosenFile.getName()::endsWith).findFirst()
+                .orElse(null);
+        if (extension == null) {
+            // Not every file dialog appends the extension of the selected filter.
+            extension = fileChooser.getSelectedExtensionFilter().getExtensions().get(0).substring(1);
+            chosenFile = new File(chosenFile.getPath() + extension);
+        }
+        File file = chosenFile;
+        Exporter.Format format = formatsByExtension.get(extension);
+        boolean gzip = extension.endsWith(".gz");
+
+        Exporter exporter = DaoFactory.getDaoFactory().createExporter();
+        this.buttonExport.setDisable(true);
+        Thread.ofVirtual().start(() -> {
+            try {
+                long rows = exporter.exportPatients(file.toPath(), format, gzip, 0, null, null,
+                        (exportedRows, totalRows) -> Platform.runLater(() -> this.buttonExport.setText(
+                                totalRows > 0 ? (exportedRows * 100 / totalRows) + " %" : "Exportieren")));
+                Platform.runLater(() -> showExportResult(Alert.AlertType.INFORMATION, "Export abgeschlossen",
+                        rows + " Patienten wurden nach " + file.getName() + " exportiert."));
+            } catch (SQLException | IOException exception) {
+                exception.printStackTrace();
+                Platform.runLater(() -> showExportResult(Alert.AlertType.ERROR, "Export fehlgeschlagen",
+                        exception.getMessage()));
+            }
+        });
+    }
+
+    private void showExportResult(Alert.AlertType alertType, String header, String content) {
+        this.buttonExport.setText("Exportieren");
+        this.buttonExport.setDisable(false);
+        Alert alert = new Alert(alertType);
+        alert.setTitle("Export");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
     }
 
     /**
@@ -1,9 +1,12 @@
 package de.hitec.nhplus.controller;
 
 import de.hitec.nhplus.Main;
+import de.hitec.nhplus.datastorage.AsyncDao;
 import de.hitec.nhplus.datastorage.DaoFactory;
-import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.datastorage.Exporter;
+import de.hitec.nhplus.datastorage.Importer;
 import de.hitec.nhplus.datastorage.TreatmentDao;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -12,60 +15,109 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.AnchorPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 import de.hitec.nhplus.model.Patient;
 import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.TreatmentOverview;
+import de.hitec.nhplus.model.TreatmentSearchHit;
+import javafx.beans.property.ReadOnlyStringWrapper;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class AllTreatmentController {
 
     @FXML
-    private TableView<Treatment> tableView;
+    private TableView<TreatmentOverview> tableView;
 
     @FXML
-    private TableColumn<Treatment, Integer> columnId;
+    private TableColumn<TreatmentOverview, Integer> columnId;
 
     @FXML
-    private TableColumn<Treatment, Integer> columnPid;
+    private TableColumn<TreatmentOverview, String> columnPatient;
 
     @FXML
-    private TableColumn<Treatment, String> columnDate;
+    private TableColumn<TreatmentOverview, String> columnDate;
 
     @FXML
-    private TableColumn<Treatment, String> columnBegin;
+    private TableColumn<TreatmentOverview, String> columnBegin;
 
     @FXML
-    private TableColumn<Treatment, String> columnEnd;
+    private TableColumn<TreatmentOverview, String> columnEnd;
 
     @FXML
-    private TableColumn<Treatment, String> columnDescription;
+    private TableColumn<TreatmentOverview, String> columnDescription;
 
     @FXML
-    private ComboBox<String> comboBoxPatientSelection;
+    private TableColumn<TreatmentOverview, String> columnSnippet;
+
+    @FXML
+    private ComboBox<Long> comboBoxPatientSelection;
+
+    @FXML
+    private TextField textFieldSearch;
 
     @FXML
     private Button buttonDelete;
 
-    private TreatmentDao dao;
-    private final ObservableList<String> patientSelection = FXCollections.observableArrayList();
-    private final ObservableList<Treatment> treatments = FXCollections.observableArrayList();
-    private ArrayList<Patient> patientList;
+    @FXML
+    private Button buttonImport;
+
+    @FXML
+    private Button buttonExport;
+
+    private AsyncDao<Treatment, TreatmentDao> dao;
+    private TableLoader tableLoader;
+    private ChangeFeedBinding<TreatmentOverview> changeFeedBinding;
+    private static final Long ALL_PATIENTS = 0L;
+    private static final int SEARCH_LIMIT = 200;
+    private static final int MAX_SHOWN_REJECTED_LINES = 10;
+
+    private final ObservableList<Long> patientSelection = FXCollections.observableArrayList();
+    private final ObservableList<TreatmentOverview> treatments = FXCollections.observableArrayList();
+    private final Map<Long, Patient> patientsByPid = new HashMap<>();
 
 
     public void initialize() {
+        this.dao = DaoFactory.getDaoFactory().createAsyncTreatmentDao();
+        this.tableLoader = new TableLoader(this.tableView);
+        this.changeFeedBinding = new ChangeFeedBinding<>(DaoFactory.getDaoFactory().getChangeFeed(), "treatment",
+                this.treatments, Treatment::getTid, tids -> this.dao.call(dao -> dao.readOverviewsByTids(tids)),
+                this.tableView);
         readAllAndShowInTableView();
         comboBoxPatientSelection.setItems(patientSelection);
+        comboBoxPatientSelection.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(Long pid) {
+                return formatPatientDisplayName(pid);
+            }
+
+            @Override
+            public Long fromString(String displayName) {
+                return null;
+            }
+        });
         comboBoxPatientSelection.getSelectionModel().select(0);
 
         this.columnId.setCellValueFactory(new PropertyValueFactory<>("tid"));
-        this.columnPid.setCellValueFactory(new PropertyValueFactory<>("pid"));
+        this.columnPatient.setCellValueFactory(new PropertyValueFactory<>("patientName"));
         this.columnDate.setCellValueFactory(new PropertyValueFactory<>("date"));
         this.columnBegin.setCellValueFactory(new PropertyValueFactory<>("begin"));
         this.columnEnd.setCellValueFactory(new PropertyValueFactory<>("end"));
         this.columnDescription.setCellValueFactory(new PropertyValueFactory<>("description"));
+        // Rows, which were changed while the results of a search are shown, are replaced by rows without excerpt.
+        this.columnSnippet.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(
+                cellData.getValue() instanceof TreatmentSearchHit hit ? hit.getSnippet() : ""));
         this.tableView.setItems(this.treatments);
 
         // Disabling the button to delete treatments as long, as no treatment was selected.
@@ -75,102 +127,144 @@ public class AllTreatmentController {
                         AllTreatmentController.this.buttonDelete.setDisable(newTreatment == null));
 
         this.createComboBoxData();
+        this.textFieldSearch.textProperty().addListener((observableValue, oldText, newText) -> handleComboBox());
     }
 
     public void readAllAndShowInTableView() {
         this.treatments.clear();
         comboBoxPatientSelection.getSelectionModel().select(0);
-        this.dao = DaoFactory.getDaoFactory().createTreatmentDao();
-        try {
-            this.treatments.addAll(dao.readAll());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        this.changeFeedBinding.setFilter(treatment -> true);
+        this.tableLoader.load(this.dao.call(dao -> dao.readOverviews(0, null, null, 0, -1)), this.treatments::setAll);
     }
 
-    private void createComboBoxData() {
-        patientSelection.clear();
-        patientSelection.add("alle");
-
-        PatientDao dao = DaoFactory.getDaoFactory().createPatientDAO();
-        try {
-            patientList = (ArrayList<Patient>) dao.readAll();
-            for (Patient patient: patientList) {
-                this.patientSelection.add(formatPatientDisplayName(patient));
-            }
-            comboBoxPatientSelection.setItems(patientSelection);
-            comboBoxPatientSelection.getSelectionModel().selectFirst(); // "alle" wird vorausgewählt
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+    /**
+     * Appends a new treatment to the table, if it belongs to the selected patient. The table is not reloaded.
+     *
+     * @param treatment Persisted treatment.
+     */
+    public void addTreatmentToTableView(TreatmentOverview treatment) {
+        this.changeFeedBinding.upsert(treatment);
     }
 
-    private String formatPatientDisplayName(Patient patient) {
-        return String.format("%s, %s", patient.getSurname(), patient.getFirstName());
+    /**
+     * Replaces the row of a changed treatment, so the table shows its new values. The table is not reloaded.
+     *
+     * @param treatment Changed treatment, which is already shown in the table.
+     */
+    public void replaceTreatmentInTableView(TreatmentOverview treatment) {
+        this.changeFeedBinding.upsert(treatment);
     }
 
-    @FXML
-    public void handleComboBox() {
-        String selectedPatient = this.comboBoxPatientSelection.getSelectionModel().getSelectedItem();
-        this.treatments.clear();
-        this.dao = DaoFactory.getDaoFactory().createTreatmentDao();
+    /**
+     * Fills the <code>ComboBox</code> with the ids of all patients. The patients are indexed by their id once, so
+     * showing and selecting an entry does not search the list of patients.
+     */
+    private void createComboBoxData() {
+        patientSelection.clear();
+        patientsByPid.clear();
+        patientSelection.add(ALL_PATIENTS);
+        comboBoxPatientSelection.getSelectionModel().selectFirst(); // "alle" wird vorausgewählt
 
-        if (selectedPatient == null || selectedPatient.equals("alle")) {
-            try {
-                this.treatments.addAll(this.dao.readAll());
-            } catch (SQLException exception) {
+        DaoFactory.getDaoFactory().createAsyncPatientDao().readAll().whenComplete((patients, exception) -> {
+            if (exception != null) {
                 exception.printStackTrace();
+                return;
             }
-        }
-        else {
-            Patient patient = getPatientFromDisplayName(selectedPatient);
-            if (patient != null) {
-                try {
-                    this.treatments.addAll(this.dao.readTreatmentsByPid(patient.getPid()));
-                } catch (SQLException exception) {
-                    exception.printStackTrace();
-                }
+            List<Long> pids = new ArrayList<>(patients.size());
+            for (Patient patient: patients) {
+                this.patientsByPid.put(patient.getPid(), patient);
+                pids.add(patient.getPid());
             }
-        }
+            this.patientSelection.addAll(pids);
+        });
     }
 
-    private Patient getPatientFromDisplayName(String displayName) {
-        for (Patient patient : patientList) {
-            if (displayName.equals(formatPatientDisplayName(patient))) {
-                return patient;
-            }
+    private String formatPatientDisplayName(Long pid) {
+        Patient patient = pid == null ? null : this.patientsByPid.get(pid);
+        if (patient == null) {
+            return "alle";
         }
-        return null;
+        return patient.getSurname() + ", " + patient.getFirstName();
     }
 
-    private Patient searchInList(String surname) {
-        for (Patient patient : this.patientList) {
-            if (patient.getSurname().equals(surname)) {
-                return patient;
+    /**
+     * Returns the patient selected in the <code>ComboBox</code>.
+     *
+     * @return The selected patient or <code>null</code>, if all patients are selected.
+     */
+    private Patient getSelectedPatient() {
+        Long pid = this.comboBoxPatientSelection.getSelectionModel().getSelectedItem();
+        return pid == null ? null : this.patientsByPid.get(pid);
+    }
+
+    @FXML
+    public void handleComboBox() {
+        UiActionEvent action = UiActionEvent.begin(this, "handleComboBox");
+        try {
+            Patient patient = getSelectedPatient();
+            this.treatments.clear();
+
+            String searchText = this.textFieldSearch.getText();
+            this.columnSnippet.setVisible(!searchText.isBlank());
+            // Loading the treatments of the new selection cancels the query of the previous one.
+            if (!searchText.isBlank()) {
+                long pid = patient == null ? 0 : patient.getPid();
+                Set<Long> foundTids = new HashSet<>();
+                this.changeFeedBinding.setFilter(treatment -> foundTids.contains(treatment.getTid()));
+                this.tableLoader.load(this.dao.call(dao -> dao.search(searchText, pid, SEARCH_LIMIT)), hits -> {
+                    for (TreatmentSearchHit hit : hits) {
+                        foundTids.add(hit.getTid());
+                    }
+                    this.treatments.setAll(hits);
+                });
             }
+            else if (patient == null) {
+                this.changeFeedBinding.setFilter(treatment -> true);
+                this.tableLoader.load(this.dao.call(dao -> dao.readOverviews(0, null, null, 0, -1)),
+                        this.treatments::setAll);
+            }
+            else {
+                long pid = patient.getPid();
+                this.changeFeedBinding.setFilter(treatment -> treatment.getPid() == pid);
+                this.tableLoader.load(this.dao.call(dao -> dao.readOverviews(pid, null, null, 0, -1)),
+                        this.treatments::setAll);
+            }
+        } finally {
+            action.finish();
         }
-        return null;
     }
 
     @FXML
     public void handleDelete() {
-        int index = this.tableView.getSelectionModel().getSelectedIndex();
-        Treatment t = this.treatments.remove(index);
-        TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
+        UiActionEvent action = UiActionEvent.begin(this, "handleDelete");
         try {
-            dao.deleteById(t.getTid());
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+            TreatmentOverview selectedItem = this.tableView.getSelectionModel().getSelectedItem();
+            if (selectedItem != null) {
+                // The row is only removed, when the treatment is deleted, so the table never hides a persisted one.
+                this.dao.deleteById(selectedItem.getTid()).whenComplete((result, exception) -> {
+                    if (exception == null) {
+                        this.treatments.remove(selectedItem);
+                    } else {
+                        exception.printStackTrace();
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("Fehler");
+                        alert.setHeaderText("Behandlung konnte nicht gelöscht werden!");
+                        alert.setContentText(exception.getMessage());
+                        alert.showAndWait();
+                    }
+                });
+            }
+        } finally {
+            action.finish();
         }
     }
 
     @FXML
     public void handleNewTreatment() {
-        try{
-            String selectedPatient = this.comboBoxPatientSelection.getSelectionModel().getSelectedItem();
-            Patient patient = searchInList(selectedPatient);
+        Patient patient = getSelectedPatient();
+        if (patient != null) {
             newTreatmentWindow(patient);
-        } catch (NullPointerException exception){
+        } else {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Information");
             alert.setHeaderText("Patient für die Behandlung fehlt!");
@@ -179,12 +273,118 @@ public class AllTreatmentController {
         }
     }
 
+    /**
+     * Imports the treatments of a CSV file chosen by the user. The pids of the file have to be ids of existing
+     * patients. The import runs in the background, the imported treatments are shown by the change feed. At the end,
+     * the number of imported treatments and the first rejected lines are shown.
+     */
+    @FXML
+    public void handleImport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Behandlungen importieren");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.csv.gz"));
+        File file = fileChooser.showOpenDialog(this.tableView.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        Importer importer = DaoFactory.getDaoFactory().createImporter();
+        this.buttonImport.setDisable(true);
+        Thread.ofVirtual().start(() -> {
+            try {
+                Importer.Result result = importer.importTreatments(file.toPath(), null);
+                StringBuilder content = new StringBuilder(result.getImportedRows() +
+                        " Behandlungen wurden importiert, " + result.getRejectedRows() + " Zeilen abgelehnt.");
+                for (Importer.RejectedLine rejectedLine : result.getRejectedLines().subList(0,
+                        Math.min(MAX_SHOWN_REJECTED_LINES, result.getRejectedLines().size()))) {
+                    content.append('\n').append(rejectedLine);
+                }
+                Platform.runLater(() -> showImportResult(Alert.AlertType.INFORMATION, "Import abgeschlossen",
+                        content.toString()));
+            } catch (SQLException | IOException exception) {
+                exception.printStackTrace();
+                Platform.runLater(() -> showImportResult(Alert.AlertType.ERROR, "Import fehlgeschlagen",
+                        exception.getMessage()));
+            }
+        });
+    }
+
+    private void showImportResult(Alert.AlertType alertType, String header, String content) {
+        this.buttonImport.setDisable(false);
+        Alert alert = new Alert(alertType);
+        alert.setTitle("Import");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
+    /**
+     * Exports the treatments of the selected patient or of all patients to a file chosen by the user. The format is
+     * taken from the extension of the file. The export runs in the background and shows its progress on the button.
+     */
+    @FXML
+    public void handleExport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Behandlungen exportieren");
+        Map<String, Exporter.Format> formatsByExtension = new LinkedHashMap<>();
+        for (Exporter.Format format : Exporter.Format.values()) {
+            formatsByExtension.put(Exporter.fileName("", format, false), format);
+            formatsByExtension.put(Exporter.fileName("", format, true), format);
+        }
+        for (String extension : formatsByExtension.keySet()) {
+            fileChooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter(extension.substring(1), "*" + extension));
+        }
+        fileChooser.setInitialFileName("behandlungen");
+        File chosenFile = fileChooser.showSaveDialog(this.tableView.getScene().getWindow());
+        if (chosenFile == null) {
+            return;
+        }
+        String extension = formatsByExtension.keySet().stream().filter(chosenFile.getName()::endsWith).findFirst()
+                .orElse(null);
+        if (extension == null) {
+            // Not every file dialog appends the extension of the selected filter.
+            extension = fileChooser.getSelectedExtensionFilter().getExtensions().get(0).substring(1);
+            chosenFile = new File(chosenFile.getPath() + extension);
+        }
+        File file = chosenFile;
+        Exporter.Format format = formatsByExtension.get(extension);
+        boolean gzip = extension.endsWith(".gz");
+        Patient patient = getSelectedPatient();
+        long pid = patient == null ? 0 : patient.getPid();
+
+        Exporter exporter = DaoFactory.getDaoFactory().createExporter();
+        this.buttonExport.setDisable(true);
+        Thread.ofVirtual().start(() -> {
+            try {
+                long rows = exporter.exportTreatments(file.toPath(), format, gzip, pid, null, null,
+                        (exportedRows, totalRows) -> Platform.runLater(() -> this.buttonExport.setText(
+                                totalRows > 0 ? (exportedRows * 100 / totalRows) + " %" : "Exportieren")));
+                Platform.runLater(() -> showExportResult(Alert.AlertType.INFORMATION, "Export abgeschlossen",
+                        rows + " Behandlungen wurden nach " + file.getName() + " exportiert."));
+            } catch (SQLException | IOException exception) {
+                exception.printStackTrace();
+                Platform.runLater(() -> showExportResult(Alert.AlertType.ERROR, "Export fehlgeschlagen",
+                        exception.getMessage()));
+            }
+        });
+    }
+
+    private void showExportResult(Alert.AlertType alertType, String header, String content) {
+        this.buttonExport.setText("Exportieren");
+        this.buttonExport.setDisable(false);
+        Alert alert = new Alert(alertType);
+        alert.setTitle("Export");
+        alert.setHeaderText(header);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
     @FXML
     public void handleMouseClick() {
         tableView.setOnMouseClicked(event -> {
             if (event.getClickCount() == 2 && (tableView.getSelectionModel().getSelectedItem() != null)) {
                 int index = this.tableView.getSelectionModel().getSelectedIndex();
-                Treatment treatment = this.treatments.get(index);
+                TreatmentOverview treatment = this.treatments.get(index);
                 treatmentWindow(treatment);
             }
         });
@@ -210,7 +410,7 @@ public class AllTreatmentController {
         }
     }
 
-    public void treatmentWindow(Treatment treatment){
+    public void treatmentWindow(TreatmentOverview treatment){
         try {
             FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/TreatmentView.fxml"));
             AnchorPane pane = loader.load();
@@ -0,0 +1,145 @@
+package de.hitec.nhplus.controller;
+
+import de.hitec.nhplus.datastorage.ChangeFeed;
+import de.hitec.nhplus.datastorage.RowChange;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps the items of a table view in sync with the rows of one database table. The binding subscribes to the
+ * {@link ChangeFeed} and applies only the committed changes: deleted rows are removed, inserted and updated rows are
+ * read by their id and inserted or replaced. The rest of the list is neither read nor touched again. The subscription
+ * ends, when the given node is removed from its scene, for example when another view is shown.
+ * <p>
+ * All methods are called on the JavaFX application thread.
+ *
+ * @param <T> Type of the items.
+ */
+class ChangeFeedBinding<T> {
+
+    private final String table;
+    private final ObservableList<T> items;
+    private final ToLongFunction<T> keyFunction;
+    private final RowLoader<T> rowLoader;
+    private Predicate<T> filter = item -> true;
+
+    /**
+     * Reads the rows with the given ids in the background.
+     *
+     * @param <T> Type of the items.
+     */
+    @FunctionalInterface
+    interface RowLoader<T> {
+        CompletableFuture<List<T>> load(Set<Long> keys);
+    }
+
+    /**
+     * Constructor to initiate a binding and subscribe it to the change feed.
+     *
+     * @param changeFeed Feed of the database.
+     * @param table Name of the database table of the items.
+     * @param items List of the table view.
+     * @param keyFunction Function, which returns the id of an item.
+     * @param rowLoader Reads the changed rows by their ids.
+     * @param owner Node of the view. The binding ends, when the node leaves its scene.
+     */
+    ChangeFeedBinding(ChangeFeed changeFeed, String table, ObservableList<T> items, ToLongFunction<T> keyFunction,
+                      RowLoader<T> rowLoader, Node owner) {
+        this.table = table;
+        this.items = items;
+        this.keyFunction = keyFunction;
+        this.rowLoader = rowLoader;
+
+        ChangeFeed.Listener listener = this::applyChanges;
+        changeFeed.subscribe(listener, Platform::runLater);
+        owner.sceneProperty().addListener((observableValue, oldScene, newScene) -> {
+            if (oldScene != null && newScene == null) {
+                changeFeed.unsubscribe(listener);
+            }
+        });
+    }
+
+    /**
+     * Sets the condition of the items shown in the list. Changed rows, which do not fulfill it, are removed from the
+     * list or not inserted.
+     *
+     * @param filter Condition of the shown items.
+     */
+    void setFilter(Predicate<T> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Inserts the given item or replaces the item with the same id.
+     *
+     * @param item Item, which was persisted.
+     */
+    void upsert(T item) {
+        upsertAll(List.of(item));
+    }
+
+    private void applyChanges(List<RowChange> changes) {
+        Set<Long> deletedKeys = new HashSet<>();
+        Set<Long> changedKeys = new LinkedHashSet<>();
+        for (RowChange change : changes) {
+            if (!change.getTable().equals(this.table)) {
+                continue;
+            }
+            if (change.getOperation() == RowChange.Operation.DELETE) {
+                changedKeys.remove(change.getRowId());
+                deletedKeys.add(change.getRowId());
+            } else {
+                changedKeys.add(change.getRowId());
+            }
+        }
+
+        if (!deletedKeys.isEmpty()) {
+            this.items.removeIf(item -> deletedKeys.contains(this.keyFunction.applyAsLong(item)));
+        }
+        if (!changedKeys.isEmpty()) {
+            this.rowLoader.load(changedKeys).whenComplete((changedItems, exception) -> {
+                if (exception == null) {
+                    upsertAll(changedItems);
+                } else {
+                    exception.printStackTrace();
+                }
+            });
+        }
+    }
+
+    private void upsertAll(List<T> changedItems) {
+        Map<Long, Integer> indexByKey = new HashMap<>();
+        for (int i = 0; i < this.items.size(); i++) {
+            indexByKey.put(this.keyFunction.applyAsLong(this.items.get(i)), i);
+        }
+        List<T> removedItems = new ArrayList<>();
+        for (T item : changedItems) {
+            Integer index = indexByKey.get(this.keyFunction.applyAsLong(item));
+            if (!this.filter.test(item)) {
+                if (index != null) {
+                    removedItems.add(this.items.get(index));
+                }
+            } else if (index != null) {
+                this.items.set(index, item);
+            } else {
+                indexByKey.put(this.keyFunction.applyAsLong(item), this.items.size());
+                this.items.add(item);
+            }
+        }
+        if (!removedItems.isEmpty()) {
+            this.items.removeAll(removedItems);
+        }
+    }
+}
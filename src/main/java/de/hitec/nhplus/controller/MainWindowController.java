@@ -1,6 +1,7 @@
 package de.hitec.nhplus.controller;
 
 import de.hitec.nhplus.Main;
+import de.hitec.nhplus.datastorage.DaoFactory;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -15,21 +16,33 @@ public class MainWindowController {
 
     @FXML
     private void handleShowAllPatient(ActionEvent event) {
-        FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/AllPatientView.fxml"));
-        try {
-            mainBorderPane.setCenter(loader.load());
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+        showView("handleShowAllPatient", "/de/hitec/nhplus/AllPatientView.fxml");
     }
 
     @FXML
     private void handleShowAllTreatments(ActionEvent event) {
-        FXMLLoader loader = new FXMLLoader(Main.class.getResource("/de/hitec/nhplus/AllTreatmentView.fxml"));
+        showView("handleShowAllTreatments", "/de/hitec/nhplus/AllTreatmentView.fxml");
+    }
+
+    /**
+     * Loads the given view into the center of the main window. The action and the loading of the view are recorded as
+     * flight recorder events, the queries started by the new controller belong to the action.
+     *
+     * @param action Name of the handler.
+     * @param view Path of the FXML file.
+     */
+    private void showView(String action, String view) {
+        UiActionEvent actionEvent = UiActionEvent.begin(this, action);
         try {
+            DaoFactory.getDaoFactory().getPatientUpdateQueue().flush();
+            FXMLLoader loader = new FXMLLoader(Main.class.getResource(view));
+            ViewLoadEvent viewLoadEvent = ViewLoadEvent.begin(view);
             mainBorderPane.setCenter(loader.load());
+            viewLoadEvent.commit();
         } catch (IOException exception) {
             exception.printStackTrace();
+        } finally {
+            actionEvent.finish();
         }
     }
 }
@@ -1,17 +1,16 @@
 package de.hitec.nhplus.controller;
 
 import de.hitec.nhplus.datastorage.DaoFactory;
-import de.hitec.nhplus.datastorage.TreatmentDao;
 import javafx.beans.value.ChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import de.hitec.nhplus.model.Patient;
 import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.TreatmentOverview;
 import de.hitec.nhplus.utils.DateConverter;
 import javafx.util.StringConverter;
 
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
@@ -79,24 +78,40 @@ public class NewTreatmentController {
 
     @FXML
     public void handleAdd(){
-        LocalDate date = this.datePicker.getValue();
-        LocalTime begin = DateConverter.convertStringToLocalTime(textFieldBegin.getText());
-        LocalTime end = DateConverter.convertStringToLocalTime(textFieldEnd.getText());
-        String description = textFieldDescription.getText();
-        String remarks = textAreaRemarks.getText();
-        Treatment treatment = new Treatment(patient.getPid(), date, begin, end, description, remarks);
-        createTreatment(treatment);
-        controller.readAllAndShowInTableView();
-        stage.close();
+        UiActionEvent action = UiActionEvent.begin(this, "handleAdd");
+        try {
+            LocalDate date = this.datePicker.getValue();
+            LocalTime begin = DateConverter.convertStringToLocalTime(textFieldBegin.getText());
+            LocalTime end = DateConverter.convertStringToLocalTime(textFieldEnd.getText());
+            String description = textFieldDescription.getText();
+            String remarks = textAreaRemarks.getText();
+            Treatment treatment = new Treatment(patient.getPid(), date, begin, end, description, remarks);
+            createTreatment(treatment);
+        } finally {
+            action.finish();
+        }
     }
 
+    /**
+     * Creates the treatment in the background. The treatment is added to the table and the window is closed, when
+     * it is created, otherwise the window stays open and shows the error.
+     */
     private void createTreatment(Treatment treatment) {
-        TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
-        try {
-            dao.create(treatment);
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        this.buttonAdd.setDisable(true);
+        DaoFactory.getDaoFactory().createAsyncTreatmentDao().create(treatment).whenComplete((created, exception) -> {
+            if (exception == null) {
+                this.controller.addTreatmentToTableView(new TreatmentOverview(created, this.patient));
+                this.stage.close();
+            } else {
+                exception.printStackTrace();
+                this.buttonAdd.setDisable(areInputDataInvalid());
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Fehler");
+                alert.setHeaderText("Behandlung konnte nicht angelegt werden!");
+                alert.setContentText(exception.getMessage());
+                alert.showAndWait();
+            }
+        });
     }
 
     @FXML
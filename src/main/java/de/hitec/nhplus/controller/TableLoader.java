@@ -0,0 +1,66 @@
+package de.hitec.nhplus.controller;
+
+import javafx.scene.Node;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableView;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Shows the results of asynchronous queries in a <code>TableView</code>. While a query runs, the table shows a
+ * progress indicator instead of its placeholder. Starting a new query cancels the running one, so the table never shows
+ * the result of a superseded query, for example after the user quickly changed a selection several times.
+ * <p>
+ * All methods have to be called on the JavaFX application thread, and the futures have to be completed there.
+ */
+class TableLoader {
+
+    private final TableView<?> tableView;
+    private final Node placeholder;
+    private CompletableFuture<?> pending;
+
+    /**
+     * Constructor to initiate a loader for the given table.
+     *
+     * @param tableView Table, which shows the results.
+     */
+    TableLoader(TableView<?> tableView) {
+        this.tableView = tableView;
+        this.placeholder = tableView.getPlaceholder();
+    }
+
+    /**
+     * Cancels the running query and waits for the result of the given one.
+     *
+     * @param query Future of the new query.
+     * @param onResult Called with the result, if the query succeeds and is not cancelled before.
+     * @param <R> Type of the result.
+     */
+    <R> void load(CompletableFuture<R> query, Consumer<R> onResult) {
+        cancel();
+        this.pending = query;
+        this.tableView.setPlaceholder(new ProgressIndicator());
+        query.whenComplete((result, exception) -> {
+            if (this.pending == query) {
+                this.pending = null;
+                this.tableView.setPlaceholder(this.placeholder);
+            }
+            if (exception == null) {
+                onResult.accept(result);
+            } else if (!(exception instanceof CancellationException)) {
+                exception.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Cancels the running query, if there is one.
+     */
+    void cancel() {
+        if (this.pending != null) {
+            this.pending.cancel(true);
+        }
+    }
+}
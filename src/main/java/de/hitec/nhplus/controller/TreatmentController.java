@@ -1,17 +1,14 @@
 package de.hitec.nhplus.controller;
 
 import de.hitec.nhplus.datastorage.DaoFactory;
-import de.hitec.nhplus.datastorage.PatientDao;
-import de.hitec.nhplus.datastorage.TreatmentDao;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import de.hitec.nhplus.model.Patient;
-import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.TreatmentOverview;
 import de.hitec.nhplus.utils.DateConverter;
 
-import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 public class TreatmentController {
 
@@ -36,27 +33,24 @@ public class TreatmentController {
     @FXML
     private DatePicker datePicker;
 
+    @FXML
+    private Button btnChange;
+
     private AllTreatmentController controller;
     private Stage stage;
-    private Patient patient;
-    private Treatment treatment;
+    private TreatmentOverview treatment;
 
-    public void initializeController(AllTreatmentController controller, Stage stage, Treatment treatment) {
+    public void initializeController(AllTreatmentController controller, Stage stage, TreatmentOverview treatment) {
         this.stage = stage;
         this.controller= controller;
-        PatientDao pDao = DaoFactory.getDaoFactory().createPatientDAO();
-        try {
-            this.patient = pDao.read((int) treatment.getPid());
-            this.treatment = treatment;
-            showData();
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        // The overview already contains the name and care level of the patient, so the patient is not read again.
+        this.treatment = treatment;
+        showData();
     }
 
     private void showData(){
-        this.labelPatientName.setText(patient.getSurname()+", "+patient.getFirstName());
-        this.labelCareLevel.setText(patient.getCareLevel());
+        this.labelPatientName.setText(treatment.getPatientName());
+        this.labelCareLevel.setText(treatment.getPatientCareLevel());
         LocalDate date = DateConverter.convertStringToLocalDate(treatment.getDate());
         this.datePicker.setValue(date);
         this.textFieldBegin.setText(this.treatment.getBegin());
@@ -67,22 +61,59 @@ public class TreatmentController {
 
     @FXML
     public void handleChange(){
-        this.treatment.setDate(this.datePicker.getValue().toString());
-        this.treatment.setBegin(textFieldBegin.getText());
-        this.treatment.setEnd(textFieldEnd.getText());
-        this.treatment.setDescription(textFieldDescription.getText());
-        this.treatment.setRemarks(textAreaRemarks.getText());
-        doUpdate();
-        controller.readAllAndShowInTableView();
-        stage.close();
+        UiActionEvent action = UiActionEvent.begin(this, "handleChange");
+        try {
+            if (!areTimesValid()) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Fehler");
+                alert.setHeaderText("Ungültige Uhrzeit!");
+                alert.setContentText("Beginn und Ende müssen im Format hh:mm angegeben werden, das Ende nach dem Beginn.");
+                alert.showAndWait();
+                return;
+            }
+            this.treatment.setDate(this.datePicker.getValue().toString());
+            this.treatment.setBegin(textFieldBegin.getText());
+            this.treatment.setEnd(textFieldEnd.getText());
+            this.treatment.setDescription(textFieldDescription.getText());
+            this.treatment.setRemarks(textAreaRemarks.getText());
+            doUpdate();
+        } finally {
+            action.finish();
+        }
     }
 
+    /**
+     * Writes the changed treatment in the background. The table is updated and the window is closed, when the
+     * treatment is written, otherwise the window stays open and shows the error.
+     */
     private void doUpdate(){
-        TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
+        this.btnChange.setDisable(true);
+        DaoFactory.getDaoFactory().createAsyncTreatmentDao().update(this.treatment).whenComplete((result, exception) -> {
+            if (exception == null) {
+                this.controller.replaceTreatmentInTableView(this.treatment);
+                this.stage.close();
+            } else {
+                exception.printStackTrace();
+                this.btnChange.setDisable(false);
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Fehler");
+                alert.setHeaderText("Behandlung konnte nicht gespeichert werden!");
+                alert.setContentText(exception.getMessage());
+                alert.showAndWait();
+            }
+        });
+    }
+
+    /**
+     * Checks the times like the window for new treatments does: a treatment ends after it begins on the same day.
+     */
+    private boolean areTimesValid() {
         try {
-            dao.update(treatment);
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+            LocalTime begin = DateConverter.convertStringToLocalTime(this.textFieldBegin.getText());
+            LocalTime end = DateConverter.convertStringToLocalTime(this.textFieldEnd.getText());
+            return end.isAfter(begin);
+        } catch (Exception exception) {
+            return false;
         }
     }
 
@@ -0,0 +1,58 @@
+package de.hitec.nhplus.controller;
+
+import de.hitec.nhplus.utils.ActionContext;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a handler of a controller. Its duration is the time the handler blocked the JavaFX
+ * application thread. While the handler runs, its id is the current {@link ActionContext}, so the DAO calls it starts
+ * carry the same id.
+ */
+@Name("de.hitec.nhplus.UiAction")
+@Label("UI Action")
+@Description("Handler of a controller running on the JavaFX application thread")
+@Category({"NHPlus", "User Interface"})
+@StackTrace(false)
+class UiActionEvent extends Event {
+
+    @Label("Controller")
+    String controller;
+
+    @Label("Action")
+    String action;
+
+    @Label("Action Id")
+    long actionId;
+
+    private transient long previousActionId;
+
+    /**
+     * Starts the event of the given handler and makes it the current action of this thread.
+     *
+     * @param controller Controller, whose handler is called.
+     * @param action Name of the handler.
+     * @return The started event, which has to be finished by <code>finish()</code>.
+     */
+    static UiActionEvent begin(Object controller, String action) {
+        UiActionEvent event = new UiActionEvent();
+        event.controller = controller.getClass().getSimpleName();
+        event.action = action;
+        event.actionId = ActionContext.newId();
+        event.previousActionId = ActionContext.set(event.actionId);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits the event and restores the previous action of this thread.
+     */
+    void finish() {
+        ActionContext.set(this.previousActionId);
+        commit();
+    }
+}
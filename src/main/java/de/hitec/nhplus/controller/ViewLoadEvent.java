@@ -0,0 +1,40 @@
+package de.hitec.nhplus.controller;
+
+import de.hitec.nhplus.utils.ActionContext;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of loading an FXML view, including the <code>initialize()</code> method of its controller.
+ */
+@Name("de.hitec.nhplus.ViewLoad")
+@Label("View Load")
+@Description("Loading of an FXML view and its controller")
+@Category({"NHPlus", "User Interface"})
+@StackTrace(false)
+class ViewLoadEvent extends Event {
+
+    @Label("View")
+    String view;
+
+    @Label("Action Id")
+    long actionId;
+
+    /**
+     * Starts the event of the given view.
+     *
+     * @param view Path of the FXML file.
+     * @return The started event, which has to be committed after loading the view.
+     */
+    static ViewLoadEvent begin(String view) {
+        ViewLoadEvent event = new ViewLoadEvent();
+        event.view = view;
+        event.actionId = ActionContext.current();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,117 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.utils.ActionContext;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the calls of a DAO on virtual threads, so the calling thread does not wait for the database. Every call
+ * returns a <code>CompletableFuture</code>, which is completed by the given callback executor. With
+ * <code>Platform::runLater</code> as callback executor, all results arrive on the JavaFX application thread and may
+ * change the user interface directly.
+ * <p>
+ * Cancelling a returned future interrupts its call, if it is still running, and drops its result. Controllers use this
+ * to discard requests, which were superseded by a newer one.
+ * <p>
+ * The {@link ActionContext} of the calling thread is passed on to the virtual thread of the call.
+ *
+ * @param <T> Type of the objects of the DAO.
+ * @param <D> Type of the DAO, so DAO specific queries can be passed to <code>call()</code>.
+ */
+public class AsyncDao<T, D extends Dao<T>> {
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final D dao;
+    private final Executor callbackExecutor;
+
+    /**
+     * Function, which is executed with the DAO on a virtual thread.
+     *
+     * @param <D> Type of the DAO.
+     * @param <R> Type of the result.
+     */
+    @FunctionalInterface
+    public interface DaoCall<D, R> {
+        R call(D dao) throws SQLException;
+    }
+
+    /**
+     * Constructor to initiate an object of <code>AsyncDao</code>.
+     *
+     * @param dao DAO, whose methods are called on virtual threads.
+     * @param callbackExecutor Executor, which completes the returned futures.
+     */
+    public AsyncDao(D dao, Executor callbackExecutor) {
+        this.dao = dao;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public D getDao() {
+        return this.dao;
+    }
+
+    public CompletableFuture<T> create(T t) {
+        return call(dao -> dao.create(t));
+    }
+
+    public CompletableFuture<T> read(long key) {
+        return call(dao -> dao.read(key));
+    }
+
+    public CompletableFuture<List<T>> readAll() {
+        return call(Dao::readAll);
+    }
+
+    public CompletableFuture<List<T>> readPage(long afterKey, int limit) {
+        return call(dao -> dao.readPage(afterKey, limit));
+    }
+
+    public CompletableFuture<Void> update(T t) {
+        return call(dao -> {
+            dao.update(t);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteById(long key) {
+        return call(dao -> {
+            dao.deleteById(key);
+            return null;
+        });
+    }
+
+    /**
+     * Executes the given function with the DAO on a virtual thread.
+     *
+     * @param daoCall Function to execute, for example a query, which only the specific DAO offers.
+     * @param <R> Type of the result.
+     * @return Future of the result, which is completed by the callback executor.
+     */
+    public <R> CompletableFuture<R> call(DaoCall<D, R> daoCall) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        long actionId = ActionContext.current();
+        Future<?> task = EXECUTOR.submit(() -> {
+            ActionContext.set(actionId);
+            try {
+                R value = daoCall.call(this.dao);
+                this.callbackExecutor.execute(() -> result.complete(value));
+            } catch (Throwable exception) {
+                // Errors are passed on as well, otherwise the future would never complete.
+                this.callbackExecutor.execute(() -> result.completeExceptionally(exception));
+            }
+        });
+        result.whenComplete((value, exception) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+package de.hitec.nhplus.datastorage;
+
+import org.sqlite.SQLiteCommitListener;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteUpdateListener;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Publishes the rows changed on the writer connection to its subscribers. SQLite calls the update hook for every
+ * inserted, updated and deleted row and the commit hook at the end of every transaction. The changes of one
+ * transaction are collected and published together as one batch after it was committed, the changes of a rolled back
+ * transaction are dropped.
+ * <p>
+ * The commit hook runs, before the commit is finished, so the batches are only queued there. The
+ * {@link ConnectionPool} calls <code>publish()</code>, when the writer is released, so subscribers reading the
+ * changed rows on another connection already see them.
+ */
+public class ChangeFeed {
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Queue<List<RowChange>> committedBatches = new ConcurrentLinkedQueue<>();
+    private List<RowChange> pendingChanges = new ArrayList<>();
+
+    /**
+     * Receives the batches of changed rows.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onChanges(List<RowChange> changes);
+    }
+
+    private static class Subscription {
+        private final Listener listener;
+        private final Executor executor;
+
+        private Subscription(Listener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Constructor to initiate a feed, which registers its hooks on the given connection.
+     *
+     * @param connection SQLite connection, which executes all writes.
+     */
+    public ChangeFeed(Connection connection) throws SQLException {
+        SQLiteConnection sqliteConnection = connection.unwrap(SQLiteConnection.class);
+        sqliteConnection.addUpdateListener(this::onUpdate);
+        sqliteConnection.addCommitListener(new SQLiteCommitListener() {
+            @Override
+            public void onCommit() {
+                ChangeFeed.this.onCommit();
+            }
+
+            @Override
+            public void onRollback() {
+                ChangeFeed.this.pendingChanges = new ArrayList<>();
+            }
+        });
+    }
+
+    /**
+     * Registers a listener, which gets all batches committed from now on.
+     *
+     * @param listener Listener to register.
+     * @param executor Executor, which calls the listener, for example <code>Platform::runLater</code>.
+     */
+    public void subscribe(Listener listener, Executor executor) {
+        this.subscriptions.add(new Subscription(listener, executor));
+    }
+
+    public void unsubscribe(Listener listener) {
+        this.subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    /**
+     * Passes all committed batches in the order of their commits to the subscribers.
+     */
+    public synchronized void publish() {
+        List<RowChange> changes;
+        while ((changes = this.committedBatches.poll()) != null) {
+            List<RowChange> batch = changes;
+            for (Subscription subscription : this.subscriptions) {
+                subscription.executor.execute(() -> subscription.listener.onChanges(batch));
+            }
+        }
+    }
+
+    private void onUpdate(SQLiteUpdateListener.Type type, String database, String table, long rowId) {
+        // Without subscribers nobody needs the changes, for example while the schema is migrated at startup.
+        if (this.subscriptions.isEmpty()) {
+            return;
+        }
+        this.pendingChanges.add(new RowChange(table, RowChange.Operation.valueOf(type.name()), rowId));
+    }
+
+    private void onCommit() {
+        if (!this.pendingChanges.isEmpty()) {
+            this.committedBatches.add(List.copyOf(this.pendingChanges));
+            this.pendingChanges = new ArrayList<>();
+        }
+    }
+}
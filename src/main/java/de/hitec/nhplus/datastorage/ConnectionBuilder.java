@@ -1,40 +1,42 @@
 package de.hitec.nhplus.datastorage;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
-import org.sqlite.SQLiteConfig;
-
 public class ConnectionBuilder {
 
     private static final String DB_NAME = "nursingHome.db";
     private static final String URL = "jdbc:sqlite:db/" + DB_NAME;
 
-    private static Connection connection;
+    private static ConnectionPool connectionPool;
 
-    synchronized public static Connection getConnection() {
-        try {
-            if (ConnectionBuilder.connection == null) {
-                SQLiteConfig configuration = new SQLiteConfig();
-                configuration.enforceForeignKeys(true);
-                ConnectionBuilder.connection = DriverManager.getConnection(URL, configuration.toProperties());
+    /**
+     * Returns the connection pool of the database. On first use the pool is opened and the schema of the database is
+     * migrated to the latest version.
+     *
+     * @return The connection pool or <code>null</code>, if the database could not be opened or migrated.
+     */
+    synchronized public static ConnectionPool getConnectionPool() {
+        if (ConnectionBuilder.connectionPool == null) {
+            ConnectionPool pool = null;
+            try {
+                pool = new ConnectionPool(URL, ConnectionPool.defaultReaderCount());
+                SchemaMigrator.migrate(pool);
+                ConnectionBuilder.connectionPool = pool;
+            } catch (SQLException exception) {
+                System.out.println("Verbindung zur Datenbank konnte nicht aufgebaut werden!");
+                exception.printStackTrace();
+                if (pool != null) {
+                    pool.close();
+                }
             }
-        } catch (SQLException exception) {
-            System.out.println("Verbindung zur Datenbank konnte nicht aufgebaut werden!");
-            exception.printStackTrace();
         }
-        return ConnectionBuilder.connection;
+        return ConnectionBuilder.connectionPool;
     }
 
-    synchronized public static void closeConnection() {
-        try {
-            if (ConnectionBuilder.connection != null) {
-                ConnectionBuilder.connection.close();
-                ConnectionBuilder.connection = null;
-            }
-        } catch (SQLException exception) {
-            exception.printStackTrace();
+    synchronized public static void closeConnectionPool() {
+        if (ConnectionBuilder.connectionPool != null) {
+            ConnectionBuilder.connectionPool.close();
+            ConnectionBuilder.connectionPool = null;
         }
     }
 }
@@ -0,0 +1,186 @@
+package de.hitec.nhplus.datastorage;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small pool of connections to one SQLite database file. The database is switched to WAL mode, so the pool can
+ * offer one writer connection and several read-only connections at the same time. Readers never block behind the
+ * writer and see the last committed state of the database.
+ * <p>
+ * Every acquired connection has to be given back by calling <code>release()</code>. A thread holding the writer
+ * gets the writer also for reads, so it sees its own uncommitted changes.
+ * <p>
+ * All changes committed on the writer are published by the {@link ChangeFeed} of the pool.
+ */
+public class ConnectionPool {
+
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    private final Connection writer;
+    private final ChangeFeed changeFeed;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final List<Connection> readers = new ArrayList<>();
+    private final BlockingQueue<Connection> idleReaders;
+
+    /**
+     * The constructor opens the writer connection and the given number of read-only connections.
+     *
+     * @param url JDBC url of the database file.
+     * @param readerCount Number of read-only connections.
+     */
+    public ConnectionPool(String url, int readerCount) throws SQLException {
+        SQLiteConfig writerConfiguration = new SQLiteConfig();
+        writerConfiguration.enforceForeignKeys(true);
+        writerConfiguration.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        writerConfiguration.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        writerConfiguration.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+        this.writer = DriverManager.getConnection(url, writerConfiguration.toProperties());
+        this.changeFeed = new ChangeFeed(this.writer);
+
+        this.idleReaders = new ArrayBlockingQueue<>(readerCount);
+        try {
+            for (int i = 0; i < readerCount; i++) {
+                SQLiteConfig readerConfiguration = new SQLiteConfig();
+                readerConfiguration.setReadOnly(true);
+                readerConfiguration.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+                Connection reader = DriverManager.getConnection(url, readerConfiguration.toProperties());
+                this.readers.add(reader);
+                this.idleReaders.add(reader);
+            }
+        } catch (SQLException exception) {
+            close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the number of read-only connections, which fits the number of cores of the machine.
+     *
+     * @return Default number of read-only connections.
+     */
+    public static int defaultReaderCount() {
+        return Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+    }
+
+    /**
+     * Acquires the writer connection and waits until no other thread holds it. The writer is reentrant, every call
+     * of this method needs its own call of <code>release()</code>.
+     *
+     * @return The writer connection.
+     */
+    public Connection acquireWriter() {
+        this.writerLock.lock();
+        return this.writer;
+    }
+
+    /**
+     * Acquires an idle read-only connection and waits until one is available.
+     *
+     * @return A read-only connection or the writer, if the current thread already holds it.
+     */
+    public Connection acquireReader() throws SQLException {
+        if (this.writerLock.isHeldByCurrentThread()) {
+            return acquireWriter();
+        }
+        try {
+            return this.idleReaders.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Warten auf eine freie Datenbankverbindung wurde unterbrochen", exception);
+        }
+    }
+
+    /**
+     * Runs the given work on the writer connection inside one transaction. The transaction is committed, when the
+     * work completes, and rolled back, when it throws. If the current thread is already inside a transaction of the
+     * writer, the work joins it and the outer caller decides about commit and rollback.
+     *
+     * @param work Statements to execute in the transaction.
+     */
+    public void executeInTransaction(TransactionWork work) throws SQLException {
+        Connection connection = acquireWriter();
+        try {
+            if (!connection.getAutoCommit()) {
+                work.execute(connection);
+                return;
+            }
+            connection.setAutoCommit(false);
+            try {
+                work.execute(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            release(connection);
+        }
+    }
+
+    /**
+     * Returns the feed, which publishes the rows changed on the writer.
+     *
+     * @return The change feed of the database.
+     */
+    public ChangeFeed getChangeFeed() {
+        return this.changeFeed;
+    }
+
+    /**
+     * Gives an acquired connection back to the pool. When the writer is released for the last time, the transactions
+     * committed while it was held are published by the change feed.
+     *
+     * @param connection Connection acquired by <code>acquireWriter()</code> or <code>acquireReader()</code>.
+     */
+    public void release(Connection connection) {
+        if (connection == this.writer) {
+            boolean released = this.writerLock.getHoldCount() == 1;
+            this.writerLock.unlock();
+            if (released) {
+                this.changeFeed.publish();
+            }
+        } else {
+            this.idleReaders.offer(connection);
+        }
+    }
+
+    /**
+     * Closes all connections of the pool together with their cached statements.
+     */
+    public void close() {
+        for (Connection reader : this.readers) {
+            close(reader);
+        }
+        this.readers.clear();
+        this.idleReaders.clear();
+        close(this.writer);
+    }
+
+    /**
+     * Statements, which are executed in one transaction by <code>executeInTransaction()</code>.
+     */
+    @FunctionalInterface
+    public interface TransactionWork {
+        void execute(Connection connection) throws SQLException;
+    }
+
+    private static void close(Connection connection) {
+        try {
+            StatementCache.release(connection);
+            connection.close();
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+}
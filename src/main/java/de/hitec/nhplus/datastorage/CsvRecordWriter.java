@@ -0,0 +1,63 @@
+package de.hitec.nhplus.datastorage;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records as CSV according to RFC 4180: a header line with the column names, fields separated by commas and
+ * lines ended by CRLF. Fields containing a comma, a quote or a line break are enclosed in quotes.
+ */
+class CsvRecordWriter extends RecordWriter {
+
+    CsvRecordWriter(Writer writer, String[] columns) {
+        super(writer, columns);
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+        startRecord();
+        for (String column : this.columns) {
+            writeText(column);
+        }
+        endRecord();
+    }
+
+    @Override
+    void endRecord() throws IOException {
+        this.writer.write("\r\n");
+    }
+
+    @Override
+    protected void startField() throws IOException {
+        if (this.fieldIndex > 0) {
+            this.writer.write(',');
+        }
+    }
+
+    @Override
+    protected void writeEscaped(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            this.writer.write(value);
+            return;
+        }
+        this.writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                // A quote inside a quoted field is written twice.
+                this.writer.write(value, start, i + 1 - start);
+                start = i;
+            }
+        }
+        this.writer.write(value, start, value.length() - start);
+        this.writer.write('"');
+    }
+}
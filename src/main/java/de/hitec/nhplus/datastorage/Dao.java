@@ -1,16 +1,29 @@
 package de.hitec.nhplus.datastorage;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface Dao<T> {
-    void create(T t) throws SQLException;
+    T create(T t) throws SQLException;
+
+    void createAll(Collection<T> objects) throws SQLException;
 
     T read(long key) throws SQLException;
 
     List<T> readAll() throws SQLException;
 
+    List<T> readPage(long afterKey, int limit) throws SQLException;
+
+    Stream<T> stream() throws SQLException;
+
+    void forEach(Consumer<T> action) throws SQLException;
+
     void update(T t) throws SQLException;
 
+    void updateAll(Collection<T> objects) throws SQLException;
+
     void deleteById(long key) throws SQLException;
 }
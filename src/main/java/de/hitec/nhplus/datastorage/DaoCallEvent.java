@@ -0,0 +1,34 @@
+package de.hitec.nhplus.datastorage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one successful DAO call. {@link DaoMetrics.Call} begins it before the statement is executed
+ * and commits it after the rows are read or written, so its duration is the latency of the call. Without a running
+ * recording the JIT compiler removes the event completely.
+ */
+@Name("de.hitec.nhplus.DaoCall")
+@Label("DAO Call")
+@Description("Call of a DAO method with its number of rows")
+@Category({"NHPlus", "Database"})
+@StackTrace(false)
+class DaoCallEvent extends Event {
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Action Id")
+    @Description("Id of the UI action, which caused the call, 0 if unknown")
+    long actionId;
+}
@@ -1,9 +1,16 @@
 package de.hitec.nhplus.datastorage;
 
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import javafx.application.Platform;
+
 public class DaoFactory {
 
     private static DaoFactory instance;
 
+    private final IdentityMap<Patient> patientCache = new IdentityMap<>(PatientDao.DEFAULT_CACHE_CAPACITY);
+    private PatientUpdateQueue patientUpdateQueue;
+
     private DaoFactory() {
     }
 
@@ -15,10 +22,74 @@ public class DaoFactory {
     }
 
     public TreatmentDao createTreatmentDao() {
-        return new TreatmentDao(ConnectionBuilder.getConnection());
+        return new TreatmentDao(ConnectionBuilder.getConnectionPool());
+    }
+
+    public ReportDao createReportDao() {
+        return new ReportDao(ConnectionBuilder.getConnectionPool());
+    }
+
+    public Exporter createExporter() {
+        return new Exporter(ConnectionBuilder.getConnectionPool());
+    }
+
+    public Importer createImporter() {
+        return new Importer(createPatientDAO(), createTreatmentDao(), Importer.defaultWorkerCount());
     }
 
     public PatientDao createPatientDAO() {
-        return new PatientDao(ConnectionBuilder.getConnection());
+        return new PatientDao(ConnectionBuilder.getConnectionPool(), this.patientCache);
+    }
+
+    /**
+     * Creates a <code>TreatmentDao</code>, whose calls run on virtual threads and whose results are delivered on the
+     * JavaFX application thread.
+     *
+     * @return Asynchronous <code>TreatmentDao</code>.
+     */
+    public AsyncDao<Treatment, TreatmentDao> createAsyncTreatmentDao() {
+        return new AsyncDao<>(createTreatmentDao(), Platform::runLater);
+    }
+
+    /**
+     * Creates a <code>PatientDao</code>, whose calls run on virtual threads and whose results are delivered on the
+     * JavaFX application thread.
+     *
+     * @return Asynchronous <code>PatientDao</code>.
+     */
+    public AsyncDao<Patient, PatientDao> createAsyncPatientDao() {
+        return new AsyncDao<>(createPatientDAO(), Platform::runLater);
+    }
+
+    /**
+     * Returns the feed, which publishes all rows changed in the database.
+     *
+     * @return The change feed of the database.
+     */
+    public ChangeFeed getChangeFeed() {
+        return ConnectionBuilder.getConnectionPool().getChangeFeed();
+    }
+
+    /**
+     * Returns the queue, which collects the changes of the patient table view and writes them behind.
+     *
+     * @return The write-behind queue of the patients.
+     */
+    public synchronized PatientUpdateQueue getPatientUpdateQueue() {
+        if (this.patientUpdateQueue == null) {
+            this.patientUpdateQueue = new PatientUpdateQueue(createPatientDAO(),
+                    PatientUpdateQueue.DEFAULT_QUIET_PERIOD_MILLIS);
+        }
+        return this.patientUpdateQueue;
+    }
+
+    /**
+     * Returns the identity map shared by all <code>PatientDao</code>s of this factory, for example to read its hit
+     * and miss counters.
+     *
+     * @return Identity map of the patients.
+     */
+    public IdentityMap<Patient> getPatientCache() {
+        return this.patientCache;
     }
 }
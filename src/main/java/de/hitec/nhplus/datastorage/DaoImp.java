@@ -2,56 +2,346 @@ package de.hitec.nhplus.datastorage;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public abstract class DaoImp<T> implements Dao<T> {
-    protected Connection connection;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_FETCH_SIZE = 500;
 
-    public DaoImp(Connection connection) {
-        this.connection = connection;
+    protected final ConnectionPool connectionPool;
+    protected final DaoMetrics metrics;
+    private final DaoMetrics.Operation createMetrics;
+    private final DaoMetrics.Operation createAllMetrics;
+    private final DaoMetrics.Operation readMetrics;
+    private final DaoMetrics.Operation readAllMetrics;
+    private final DaoMetrics.Operation readPageMetrics;
+    private final DaoMetrics.Operation streamMetrics;
+    private final DaoMetrics.Operation updateMetrics;
+    private final DaoMetrics.Operation updateAllMetrics;
+    private final DaoMetrics.Operation deleteMetrics;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    /**
+     * The constructor initiates the DAO with the given pool and the shared {@link DaoMetrics} of its class.
+     *
+     * @param connectionPool Pool of the connections to execute the SQL-statements.
+     */
+    public DaoImp(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        this.metrics = DaoMetrics.of(getClass().getSimpleName());
+        this.createMetrics = this.metrics.operation("create");
+        this.createAllMetrics = this.metrics.operation("createAll");
+        this.readMetrics = this.metrics.operation("read");
+        this.readAllMetrics = this.metrics.operation("readAll");
+        this.readPageMetrics = this.metrics.operation("readPage");
+        this.streamMetrics = this.metrics.operation("stream");
+        this.updateMetrics = this.metrics.operation("update");
+        this.updateAllMetrics = this.metrics.operation("updateAll");
+        this.deleteMetrics = this.metrics.operation("deleteById");
     }
 
+    /**
+     * Persists the given object and writes the id, which the database generated for it, back into the object. The
+     * SQLite driver does not support <code>getGeneratedKeys()</code>, so the id is read by
+     * <code>last_insert_rowid()</code> on the same connection, which is held exclusively until then.
+     *
+     * @param t Object to persist.
+     * @return The given object with its generated id.
+     */
     @Override
-    public void create(T t) throws SQLException {
-        getCreateStatement(t).executeUpdate();
+    public T create(T t) throws SQLException {
+        DaoMetrics.Call call = this.createMetrics.start();
+        Connection connection = this.connectionPool.acquireWriter();
+        try {
+            getCreateStatement(connection, t).executeUpdate();
+            setGeneratedKey(t, readLastInsertRowId(connection));
+            call.finish(1);
+        } finally {
+            this.connectionPool.release(connection);
+        }
+        return t;
+    }
+
+    /**
+     * Persists all given objects in one transaction. The inserts are sent to the database in batches of
+     * <code>batchSize</code> statements. The generated ids are written back into the objects.
+     *
+     * @param objects Objects to persist.
+     */
+    @Override
+    public void createAll(Collection<T> objects) throws SQLException {
+        DaoMetrics.Call call = this.createAllMetrics.start();
+        this.connectionPool.executeInTransaction(connection -> {
+            List<T> chunk = new ArrayList<>(Math.min(this.batchSize, objects.size()));
+            for (T object : objects) {
+                chunk.add(object);
+                if (chunk.size() == this.batchSize) {
+                    insertChunk(connection, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                insertChunk(connection, chunk);
+            }
+        });
+        call.finish(objects.size());
+    }
+
+    /**
+     * Sends one batch of inserts. The table has an AUTOINCREMENT key and the writer is held exclusively inside the
+     * transaction, so the rows of the batch get consecutive ids ending with <code>last_insert_rowid()</code>.
+     */
+    private void insertChunk(Connection connection, List<T> chunk) throws SQLException {
+        PreparedStatement statement = null;
+        for (T object : chunk) {
+            statement = getCreateStatement(connection, object);
+            statement.addBatch();
+        }
+        statement.executeBatch();
+
+        long key = readLastInsertRowId(connection) - chunk.size() + 1;
+        for (T object : chunk) {
+            setGeneratedKey(object, key++);
+        }
+    }
+
+    private long readLastInsertRowId(Connection connection) throws SQLException {
+        try (ResultSet result = prepareStatement(connection, "SELECT last_insert_rowid()").executeQuery()) {
+            result.next();
+            return result.getLong(1);
+        }
     }
 
     @Override
     public T read(long key) throws SQLException {
+        DaoMetrics.Call call = this.readMetrics.start();
         T object = null;
-        ResultSet result = getReadByIDStatement(key).executeQuery();
-        if (result.next()) {
-            object = getInstanceFromResultSet(result);
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadByIDStatement(connection, key).executeQuery()) {
+            if (result.next()) {
+                object = getInstanceFromResultSet(result);
+            }
+            call.finish(object == null ? 0 : 1);
+        } finally {
+            this.connectionPool.release(connection);
         }
         return object;
     }
 
     @Override
     public List<T> readAll() throws SQLException {
-        return getListFromResultSet(getReadAllStatement().executeQuery());
+        DaoMetrics.Call call = this.readAllMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadAllStatement(connection).executeQuery()) {
+            List<T> list = getListFromResultSet(result);
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Reads one page of objects ordered by their id. The page starts after the given key, so the database seeks
+     * directly to it by the primary key instead of skipping the rows of all previous pages.
+     *
+     * @param afterKey Id of the last object of the previous page, 0 for the first page.
+     * @param limit Maximum number of objects of the page.
+     * @return <code>List</code> with the objects of the page, empty after the last page.
+     */
+    @Override
+    public List<T> readPage(long afterKey, int limit) throws SQLException {
+        DaoMetrics.Call call = this.readPageMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadPageStatement(connection, afterKey, limit).executeQuery()) {
+            List<T> list = getListFromResultSet(result);
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Returns all objects as a lazy <code>Stream</code>. The rows are mapped one by one while the stream is consumed,
+     * so the whole table is never held in memory. The stream keeps a read-only connection and its cursor open until
+     * it is closed, so always use it in a try-with-resources block. Its metrics measure the time from opening to
+     * closing the stream. Errors of reading or closing the cursor are thrown as <code>RuntimeException</code> with the
+     * <code>SQLException</code> as cause.
+     *
+     * @return <code>Stream</code> of all objects, which has to be closed.
+     */
+    @Override
+    public Stream<T> stream() throws SQLException {
+        DaoMetrics.Call call = this.streamMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        ResultSet result;
+        try {
+            PreparedStatement statement = getReadAllStatement(connection);
+            statement.setFetchSize(this.fetchSize);
+            result = statement.executeQuery();
+        } catch (SQLException exception) {
+            this.connectionPool.release(connection);
+            throw exception;
+        }
+
+        long[] rows = new long[1];
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!result.next()) {
+                        return false;
+                    }
+                    rows[0]++;
+                    action.accept(getInstanceFromResultSet(result));
+                    return true;
+                } catch (SQLException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            call.finish(rows[0]);
+            try {
+                result.close();
+            } catch (SQLException exception) {
+                throw new RuntimeException(exception);
+            } finally {
+                this.connectionPool.release(connection);
+            }
+        });
+    }
+
+    /**
+     * Passes all objects one by one to the given action without collecting them in a list.
+     *
+     * @param action Action, which is called for every object.
+     */
+    @Override
+    public void forEach(Consumer<T> action) throws SQLException {
+        try (Stream<T> objects = stream()) {
+            objects.forEach(action);
+        }
     }
 
     @Override
     public void update(T t) throws SQLException {
-        getUpdateStatement(t).executeUpdate();
+        DaoMetrics.Call call = this.updateMetrics.start();
+        Connection connection = this.connectionPool.acquireWriter();
+        try {
+            call.finish(getUpdateStatement(connection, t).executeUpdate());
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Updates all given objects in one transaction. The updates are sent to the database in batches of
+     * <code>batchSize</code> statements.
+     *
+     * @param objects Objects to update.
+     */
+    @Override
+    public void updateAll(Collection<T> objects) throws SQLException {
+        DaoMetrics.Call call = this.updateAllMetrics.start();
+        this.connectionPool.executeInTransaction(connection -> {
+            PreparedStatement statement = null;
+            int count = 0;
+            for (T object : objects) {
+                statement = getUpdateStatement(connection, object);
+                statement.addBatch();
+                if (++count % this.batchSize == 0) {
+                    statement.executeBatch();
+                }
+            }
+            if (count % this.batchSize != 0) {
+                statement.executeBatch();
+            }
+        });
+        call.finish(objects.size());
     }
 
     @Override
     public void deleteById(long key) throws SQLException {
-        getDeleteStatement(key).executeUpdate();
+        DaoMetrics.Call call = this.deleteMetrics.start();
+        Connection connection = this.connectionPool.acquireWriter();
+        try {
+            call.finish(getDeleteStatement(connection, key).executeUpdate());
+        } finally {
+            this.connectionPool.release(connection);
+        }
     }
 
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Sets the number of statements, which <code>createAll()</code> and <code>updateAll()</code> send to the
+     * database at once.
+     *
+     * @param batchSize Number of statements per batch, at least 1.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getFetchSize() {
+        return this.fetchSize;
+    }
+
+    /**
+     * Sets the number of rows, which the cursor of <code>stream()</code> fetches from the database at once.
+     *
+     * @param fetchSize Number of rows per fetch, at least 1.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be at least 1");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns the compiled statement for the given SQL text from the statement cache of the given connection.
+     * Subclasses use this method instead of <code>connection.prepareStatement()</code>, so a statement is only
+     * compiled once per connection.
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param sql SQL text of the statement.
+     * @return <code>PreparedStatement</code> with cleared parameters.
+     */
+    protected PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        return StatementCache.of(connection).prepare(sql);
+    }
+
+    protected abstract void setGeneratedKey(T t, long key);
+
     protected abstract T getInstanceFromResultSet(ResultSet set) throws SQLException;
 
     protected abstract ArrayList<T> getListFromResultSet(ResultSet set) throws SQLException;
 
-    protected abstract PreparedStatement getCreateStatement(T t);
+    protected abstract PreparedStatement getCreateStatement(Connection connection, T t);
+
+    protected abstract PreparedStatement getReadByIDStatement(Connection connection, long key);
 
-    protected abstract PreparedStatement getReadByIDStatement(long key);
+    protected abstract PreparedStatement getReadAllStatement(Connection connection);
 
-    protected abstract PreparedStatement getReadAllStatement();
+    protected abstract PreparedStatement getReadPageStatement(Connection connection, long afterKey, int limit);
 
-    protected abstract PreparedStatement getUpdateStatement(T t);
+    protected abstract PreparedStatement getUpdateStatement(Connection connection, T t);
 
-    protected abstract PreparedStatement getDeleteStatement(long key);
+    protected abstract PreparedStatement getDeleteStatement(Connection connection, long key);
 }
@@ -0,0 +1,144 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.utils.ActionContext;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency histograms and row counters of the operations of one DAO. There is one instance per DAO class, which all
+ * instances of that class share, and it is published as MBean on first use.
+ * <p>
+ * The DAOs fetch their {@link Operation} once and time every call with a {@link Call}, which costs two calls of
+ * <code>System.nanoTime()</code> and a few atomic increments. Percentiles are only computed when the metrics are read,
+ * so the overhead is negligible while nobody is looking at them. Every finished call is also emitted as
+ * {@link DaoCallEvent} to a running flight recording.
+ */
+public class DaoMetrics implements DaoMetricsMXBean {
+
+    private static final ConcurrentMap<String, DaoMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private final String daoName;
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Latencies and row counts of one operation. <code>reset()</code> replaces the histogram, so the recording
+     * threads never wait for a reader.
+     */
+    public static class Operation {
+        private final String daoName;
+        private final String name;
+        private volatile LatencyHistogram window = new LatencyHistogram();
+
+        private Operation(String daoName, String name) {
+            this.daoName = daoName;
+            this.name = name;
+        }
+
+        /**
+         * Starts a call of the operation. The call has to be finished with the number of rows, if it succeeds.
+         *
+         * @return The running call.
+         */
+        public Call start() {
+            return new Call(this);
+        }
+
+        private OperationStatistics toStatistics() {
+            return this.window.toStatistics(this.name);
+        }
+
+        private void reset() {
+            this.window = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * One running call of an operation. It begins its {@link DaoCallEvent} before the statement is executed, so the
+     * event spans the call: threshold settings of a recording apply to it, and the thread views of JMC show how long
+     * the calling thread waited for the database.
+     */
+    public static class Call {
+        private final Operation operation;
+        private final DaoCallEvent event = new DaoCallEvent();
+        private final long startNanos;
+
+        private Call(Operation operation) {
+            this.operation = operation;
+            this.event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Records the call as successful. Failed calls are not finished and therefore not recorded.
+         *
+         * @param rows Number of rows, which the call read or wrote.
+         */
+        public void finish(long rows) {
+            this.operation.window.record(System.nanoTime() - this.startNanos, rows);
+            // The duration is only known to shouldCommit(), and compared with the threshold, after end().
+            this.event.end();
+            if (this.event.shouldCommit()) {
+                this.event.dao = this.operation.daoName;
+                this.event.operation = this.operation.name;
+                this.event.rows = rows;
+                this.event.actionId = ActionContext.current();
+                this.event.commit();
+            }
+        }
+    }
+
+    private DaoMetrics(String daoName) {
+        this.daoName = daoName;
+    }
+
+    /**
+     * Returns the metrics of the DAO with the given name and registers them as MBean on first use.
+     *
+     * @param daoName Name of the DAO, usually its simple class name.
+     * @return <code>DaoMetrics</code> of the DAO.
+     */
+    public static DaoMetrics of(String daoName) {
+        return METRICS.computeIfAbsent(daoName, name -> {
+            DaoMetrics metrics = new DaoMetrics(name);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                        new ObjectName("de.hitec.nhplus:type=DaoMetrics,name=" + ObjectName.quote(name)));
+            } catch (JMException exception) {
+                exception.printStackTrace();
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Returns the operation with the given name and creates it on first use.
+     *
+     * @param name Name of the operation, usually the name of the method.
+     * @return <code>Operation</code> to record the calls.
+     */
+    public Operation operation(String name) {
+        return this.operations.computeIfAbsent(name, operation -> new Operation(this.daoName, operation));
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getOperations() {
+        Map<String, OperationStatistics> statistics = new TreeMap<>();
+        for (Operation operation : this.operations.values()) {
+            statistics.put(operation.name, operation.toStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public void reset() {
+        for (Operation operation : this.operations.values()) {
+            operation.reset();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package de.hitec.nhplus.datastorage;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link DaoMetrics}. Every DAO is registered as
+ * <code>de.hitec.nhplus:type=DaoMetrics,name=&lt;class of the DAO&gt;</code>, so the metrics can be read with
+ * JConsole or VisualVM while NHPlus is running.
+ */
+public interface DaoMetricsMXBean {
+
+    /**
+     * @return Statistics of the current window per operation, ordered by the name of the operation.
+     */
+    Map<String, OperationStatistics> getOperations();
+
+    /**
+     * Starts a new window for all operations of the DAO.
+     */
+    void reset();
+}
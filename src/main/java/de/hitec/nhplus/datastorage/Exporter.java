@@ -0,0 +1,263 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.utils.DateConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports patients and treatments to CSV or JSON Lines files, for example for auditors and health insurers. The rows
+ * are streamed from the cursor of the query to the file one by one, so the memory needed does not depend on the number
+ * of exported rows. The file is written to a temporary file next to the target first and only moved to the target,
+ * when the export is complete, so a failed or cancelled export never leaves a truncated file.
+ * <p>
+ * An export holds one read-only connection until it completes. It reads a consistent snapshot of the database, even if
+ * treatments are changed meanwhile.
+ */
+public class Exporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private static final String[] PATIENT_COLUMNS =
+            {"pid", "firstname", "surname", "dateOfBirth", "carelevel", "roomnumber", "assets"};
+    private static final String[] TREATMENT_COLUMNS =
+            {"tid", "pid", "date", "begin", "end", "description", "remark"};
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Formats of the export files.
+     */
+    public enum Format {
+        CSV(".csv"),
+        JSON_LINES(".jsonl");
+
+        private final String fileExtension;
+
+        Format(String fileExtension) {
+            this.fileExtension = fileExtension;
+        }
+
+        public String getFileExtension() {
+            return this.fileExtension;
+        }
+    }
+
+    /**
+     * Is informed about the progress of an export. It is called on the thread of the export, every few thousand rows
+     * and once after the last row.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(long exportedRows, long totalRows);
+    }
+
+    @FunctionalInterface
+    private interface RowMapper {
+        void write(ResultSet result, RecordWriter recordWriter) throws SQLException, IOException;
+    }
+
+    /**
+     * The constructor initiates an object of <code>Exporter</code>.
+     *
+     * @param connectionPool Pool of the connections to execute the SQL-statements.
+     */
+    public Exporter(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Exports the patients ordered by their id.
+     *
+     * @param file Target file, an existing file is replaced.
+     * @param format Format of the file.
+     * @param gzip Whether the file is compressed with gzip.
+     * @param pid Id of the only patient to export or 0 for all patients.
+     * @param from If not <code>null</code>, only patients treated on or after this date are exported.
+     * @param to If not <code>null</code>, only patients treated on or before this date are exported.
+     * @param listener Listener of the progress or <code>null</code>.
+     * @return Number of exported patients.
+     */
+    public long exportPatients(Path file, Format format, boolean gzip, long pid, LocalDate from, LocalDate to,
+                               ProgressListener listener) throws SQLException, IOException {
+        List<Long> parameters = new ArrayList<>();
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (pid != 0) {
+            where.append(" AND p.pid = ?");
+            parameters.add(pid);
+        }
+        if (from != null || to != null) {
+            where.append(" AND EXISTS (SELECT 1 FROM treatment t WHERE t.pid = p.pid");
+            appendDateFilter(where, parameters, from, to);
+            where.append(")");
+        }
+        final String SQL = "SELECT p.pid, p.firstname, p.surname, p.dateOfBirth, p.carelevel, p.roomnumber, " +
+                "p.assets FROM patient p" + where + " ORDER BY p.pid";
+        return export(file, format, gzip, PATIENT_COLUMNS, SQL, "SELECT COUNT(*) FROM patient p" + where, parameters,
+                listener, (result, recordWriter) -> {
+                    recordWriter.writeNumber(result.getLong(1));
+                    recordWriter.writeText(result.getString(2));
+                    recordWriter.writeText(result.getString(3));
+                    recordWriter.writeText(DateConverter.convertLocalDateToString(
+                            LocalDate.ofEpochDay(result.getLong(4))));
+                    recordWriter.writeText(result.getString(5));
+                    recordWriter.writeText(result.getString(6));
+                    recordWriter.writeText(result.getString(7));
+                });
+    }
+
+    /**
+     * Exports the treatments ordered by their id.
+     *
+     * @param file Target file, an existing file is replaced.
+     * @param format Format of the file.
+     * @param gzip Whether the file is compressed with gzip.
+     * @param pid Id of the patient, whose treatments are exported, or 0 for the treatments of all patients.
+     * @param from If not <code>null</code>, only treatments on or after this date are exported.
+     * @param to If not <code>null</code>, only treatments on or before this date are exported.
+     * @param listener Listener of the progress or <code>null</code>.
+     * @return Number of exported treatments.
+     */
+    public long exportTreatments(Path file, Format format, boolean gzip, long pid, LocalDate from, LocalDate to,
+                                 ProgressListener listener) throws SQLException, IOException {
+        List<Long> parameters = new ArrayList<>();
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (pid != 0) {
+            where.append(" AND t.pid = ?");
+            parameters.add(pid);
+        }
+        appendDateFilter(where, parameters, from, to);
+        final String SQL = "SELECT t.tid, t.pid, t.treatment_date, t.begin, t.end, t.description, t.remark " +
+                "FROM treatment t" + where + " ORDER BY t.tid";
+        return export(file, format, gzip, TREATMENT_COLUMNS, SQL, "SELECT COUNT(*) FROM treatment t" + where,
+                parameters, listener, (result, recordWriter) -> {
+                    recordWriter.writeNumber(result.getLong(1));
+                    recordWriter.writeNumber(result.getLong(2));
+                    recordWriter.writeText(DateConverter.convertLocalDateToString(
+                            LocalDate.ofEpochDay(result.getLong(3))));
+                    recordWriter.writeText(DateConverter.convertLocalTimeToString(
+                            DateConverter.convertMinutesToLocalTime(result.getInt(4))));
+                    recordWriter.writeText(DateConverter.convertLocalTimeToString(
+                            DateConverter.convertMinutesToLocalTime(result.getInt(5))));
+                    recordWriter.writeText(result.getString(6));
+                    recordWriter.writeText(result.getString(7));
+                });
+    }
+
+    /**
+     * Returns the name of an export file of the given format, for example "treatment.csv.gz".
+     *
+     * @param baseName Name of the file without extension.
+     * @param format Format of the file.
+     * @param gzip Whether the file is compressed with gzip.
+     * @return Name of the file with extension.
+     */
+    public static String fileName(String baseName, Format format, boolean gzip) {
+        return baseName + format.getFileExtension() + (gzip ? ".gz" : "");
+    }
+
+    private static void appendDateFilter(StringBuilder where, List<Long> parameters, LocalDate from, LocalDate to) {
+        if (from != null) {
+            where.append(" AND t.treatment_date >= ?");
+            parameters.add(from.toEpochDay());
+        }
+        if (to != null) {
+            where.append(" AND t.treatment_date <= ?");
+            parameters.add(to.toEpochDay());
+        }
+    }
+
+    private long export(Path file, Format format, boolean gzip, String[] columns, String sql, String countSql,
+                        List<Long> parameters, ProgressListener listener, RowMapper rowMapper)
+            throws SQLException, IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".part");
+        long exportedRows = 0;
+        Connection connection = this.connectionPool.acquireReader();
+        // The count and the rows are read in one transaction, so both see the same snapshot.
+        boolean ownTransaction = connection.getAutoCommit();
+        try {
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
+            }
+            long totalRows = listener == null ? -1 : count(connection, countSql, parameters);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                setParameters(statement, parameters);
+                try (ResultSet result = statement.executeQuery();
+                     RecordWriter recordWriter = RecordWriter.of(format, openWriter(temporaryFile, gzip), columns)) {
+                    while (result.next()) {
+                        recordWriter.startRecord();
+                        rowMapper.write(result, recordWriter);
+                        recordWriter.endRecord();
+                        exportedRows++;
+                        if (exportedRows % PROGRESS_INTERVAL == 0) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new InterruptedIOException("Export wurde abgebrochen");
+                            }
+                            if (listener != null) {
+                                listener.progress(exportedRows, totalRows);
+                            }
+                        }
+                    }
+                }
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (listener != null) {
+                listener.progress(exportedRows, totalRows);
+            }
+            return exportedRows;
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+            if (ownTransaction) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            this.connectionPool.release(connection);
+        }
+    }
+
+    private static long count(Connection connection, String countSql, List<Long> parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(countSql)) {
+            setParameters(statement, parameters);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static void setParameters(PreparedStatement statement, List<Long> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setLong(i + 1, parameters.get(i));
+        }
+    }
+
+    /**
+     * Opens a buffered writer, which writes UTF-8 through the file channel and compresses it, if requested.
+     */
+    private static Writer openWriter(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,78 @@
+package de.hitec.nhplus.datastorage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded identity map, which keeps at most one instance per id. When the map is full, the least recently used
+ * instance is evicted. Lookups by id are counted as hits and misses.
+ *
+ * @param <T> Type of the cached objects.
+ */
+public class IdentityMap<T> {
+
+    private final Map<Long, T> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor to initiate an empty identity map.
+     *
+     * @param capacity Maximum number of cached instances.
+     */
+    public IdentityMap(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up the instance with the given id and counts the lookup as hit or miss.
+     *
+     * @param id Id of the instance.
+     * @return The cached instance or <code>null</code>.
+     */
+    public synchronized T get(long id) {
+        T object = this.entries.get(id);
+        if (object == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        return object;
+    }
+
+    /**
+     * Caches the given instance and replaces the instance cached for its id so far.
+     *
+     * @param id Id of the instance.
+     * @param object Instance to cache.
+     */
+    public synchronized void put(long id, T object) {
+        this.entries.put(id, object);
+    }
+
+    public synchronized void invalidate(long id) {
+        this.entries.remove(id);
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+}
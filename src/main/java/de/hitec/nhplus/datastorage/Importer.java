@@ -0,0 +1,494 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.utils.DateConverter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Imports patients and treatments from CSV files in the format written by {@link Exporter}: a header line with the
+ * column names, fields separated by commas and enclosed in quotes, if necessary. The columns may be in any order,
+ * further columns are ignored. Files ending with ".gz" are decompressed.
+ * <p>
+ * The import runs in three stages, so the parsing never waits for the disk or the database:
+ * <ol>
+ *     <li>A reader thread splits the file into chunks of records.</li>
+ *     <li>A pool of workers splits the records of each chunk into fields and validates them with the same rules as
+ *     the input fields of the application.</li>
+ *     <li>The calling thread writes the valid rows of each chunk in one transaction, in the order of the file.</li>
+ * </ol>
+ * Each chunk is committed on its own. If the import fails, the chunks written before stay in the database and the
+ * exception tells, why the import stopped. Invalid lines do not stop the import, they are reported in the result.
+ */
+public class Importer {
+
+    private static final int CHUNK_SIZE = 5_000;
+    private static final int MAX_REPORTED_REJECTIONS = 1_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] PATIENT_COLUMNS =
+            {"firstname", "surname", "dateOfBirth", "carelevel", "roomnumber", "assets"};
+    private static final String[] TREATMENT_COLUMNS = {"pid", "date", "begin", "end", "description", "remark"};
+
+    private final PatientDao patientDao;
+    private final TreatmentDao treatmentDao;
+    private final int workerCount;
+
+    /**
+     * Line of an import file, which was not imported.
+     */
+    public static class RejectedLine {
+        private final long lineNumber;
+        private final String reason;
+
+        public RejectedLine(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public String toString() {
+            return "Zeile " + this.lineNumber + ": " + this.reason;
+        }
+    }
+
+    /**
+     * Result of an import.
+     */
+    public static class Result {
+        private final long importedRows;
+        private final long rejectedRows;
+        private final List<RejectedLine> rejectedLines;
+        private final Map<Long, Long> generatedIds;
+
+        public Result(long importedRows, long rejectedRows, List<RejectedLine> rejectedLines,
+                      Map<Long, Long> generatedIds) {
+            this.importedRows = importedRows;
+            this.rejectedRows = rejectedRows;
+            this.rejectedLines = rejectedLines;
+            this.generatedIds = generatedIds;
+        }
+
+        public long getImportedRows() {
+            return importedRows;
+        }
+
+        /**
+         * Returns the number of all rejected lines, which may be more than the reported ones.
+         */
+        public long getRejectedRows() {
+            return rejectedRows;
+        }
+
+        /**
+         * Returns the first rejected lines with their reasons, at most 1000.
+         */
+        public List<RejectedLine> getRejectedLines() {
+            return rejectedLines;
+        }
+
+        /**
+         * Returns the ids, which the database generated for the imported rows, by the ids in the file. It is empty, if
+         * the file has no id column.
+         */
+        public Map<Long, Long> getGeneratedIds() {
+            return generatedIds;
+        }
+    }
+
+    /**
+     * Converts the fields of one record to an object or throws an <code>IllegalArgumentException</code> with the
+     * reason, why the record is invalid.
+     */
+    @FunctionalInterface
+    private interface RecordParser<T> {
+        T parse(String[] fields, int[] columnIndexes);
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<T> rows) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(RawChunk chunk) throws InterruptedException;
+    }
+
+    private static class RawChunk {
+        private final List<String> records = new ArrayList<>(CHUNK_SIZE);
+        private final List<Long> lineNumbers = new ArrayList<>(CHUNK_SIZE);
+    }
+
+    private static class ParsedChunk<T> {
+        private final List<T> rows = new ArrayList<>(CHUNK_SIZE);
+        private final List<Long> sourceIds = new ArrayList<>(CHUNK_SIZE);
+        private final List<RejectedLine> rejectedLines = new ArrayList<>();
+    }
+
+    /**
+     * Constructor to initiate an importer, which writes with the given DAOs.
+     *
+     * @param patientDao DAO to write the patients.
+     * @param treatmentDao DAO to write the treatments.
+     * @param workerCount Number of threads, which parse and validate the records.
+     */
+    public Importer(PatientDao patientDao, TreatmentDao treatmentDao, int workerCount) {
+        this.patientDao = patientDao;
+        this.treatmentDao = treatmentDao;
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Returns the number of workers, which fits the number of cores of the machine. One core is left for the reader
+     * and the writer.
+     *
+     * @return Default number of workers.
+     */
+    public static int defaultWorkerCount() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * Imports the patients of the given file as new patients. If the file has a column "pid", the result maps these
+     * ids to the ids of the new patients, so the treatments of the same source can be imported afterwards.
+     *
+     * @param file CSV file with the columns firstname, surname, dateOfBirth, carelevel, roomnumber and assets.
+     * @return Number of imported patients and the rejected lines.
+     */
+    public Result importPatients(Path file) throws IOException, SQLException {
+        return importFile(file, PATIENT_COLUMNS, "pid", (fields, columns) -> {
+            String firstName = requireText(fields[columns[0]], "Vorname");
+            String surname = requireText(fields[columns[1]], "Nachname");
+            LocalDate dateOfBirth = parseDate(fields[columns[2]], "Geburtstag");
+            String careLevel = requireText(fields[columns[3]], "Pflegegrad");
+            String roomNumber = requireText(fields[columns[4]], "Raum");
+            String assets = requireText(fields[columns[5]], "Vermögensstand");
+            return new Patient(firstName, surname, dateOfBirth, careLevel, roomNumber, assets);
+        }, this.patientDao::createAll, Patient::getPid);
+    }
+
+    /**
+     * Imports the treatments of the given file as new treatments. Treatments of unknown patients are rejected.
+     *
+     * @param file CSV file with the columns pid, date, begin, end, description and remark.
+     * @param pidMapping Ids of the patients in the database by the pids in the file, for example the generated ids of
+     *                   a previous patient import. If <code>null</code>, the pids of the file are taken as they are.
+     * @return Number of imported treatments and the rejected lines.
+     */
+    public Result importTreatments(Path file, Map<Long, Long> pidMapping) throws IOException, SQLException {
+        Map<Long, Long> pids = pidMapping;
+        if (pids == null) {
+            pids = new HashMap<>();
+            for (long pid : this.patientDao.readAllPids()) {
+                pids.put(pid, pid);
+            }
+        }
+        Map<Long, Long> knownPids = pids;
+        return importFile(file, TREATMENT_COLUMNS, "tid", (fields, columns) -> {
+            long sourcePid = parseId(fields[columns[0]], "Patient");
+            Long pid = knownPids.get(sourcePid);
+            if (pid == null) {
+                throw new IllegalArgumentException("Patient " + sourcePid + " ist unbekannt");
+            }
+            LocalDate date = parseDate(fields[columns[1]], "Datum");
+            LocalTime begin = parseTime(fields[columns[2]], "Beginn");
+            LocalTime end = parseTime(fields[columns[3]], "Ende");
+            if (!end.isAfter(begin)) {
+                throw new IllegalArgumentException("Ende liegt nicht nach dem Beginn");
+            }
+            String description = requireText(fields[columns[4]], "Beschreibung");
+            return new Treatment(pid, date, begin, end, description, fields[columns[5]]);
+        }, this.treatmentDao::createAll, Treatment::getTid);
+    }
+
+    private <T> Result importFile(Path file, String[] requiredColumns, String idColumn, RecordParser<T> parser,
+                                  ChunkWriter<T> chunkWriter, ToLongFunction<T> generatedId)
+            throws IOException, SQLException {
+        ExecutorService workers = Executors.newFixedThreadPool(this.workerCount);
+        // Bounds the number of chunks read ahead, so a slow database does not fill the memory.
+        BlockingQueue<CompletableFuture<ParsedChunk<T>>> parsedChunks = new ArrayBlockingQueue<>(this.workerCount * 2);
+        CompletableFuture<ParsedChunk<T>> endOfFile = CompletableFuture.completedFuture(null);
+        BufferedReader reader = openReader(file);
+        Thread readerThread = null;
+        try {
+            String[] header = splitRecord(removeByteOrderMark(reader.readLine()));
+            int[] columnIndexes = new int[requiredColumns.length];
+            for (int i = 0; i < requiredColumns.length; i++) {
+                columnIndexes[i] = indexOf(header, requiredColumns[i]);
+                if (columnIndexes[i] < 0) {
+                    throw new IOException("Die Spalte " + requiredColumns[i] + " fehlt in " + file.getFileName());
+                }
+            }
+            int idIndex = indexOf(header, idColumn);
+
+            readerThread = Thread.ofPlatform().name("import-reader").start(() -> {
+                try {
+                    readChunks(reader, chunk -> parsedChunks.put(CompletableFuture.supplyAsync(
+                            () -> parseChunk(chunk, header.length, columnIndexes, idIndex, parser), workers)));
+                    parsedChunks.put(endOfFile);
+                } catch (IOException | RuntimeException exception) {
+                    try {
+                        parsedChunks.put(CompletableFuture.failedFuture(exception));
+                    } catch (InterruptedException interruptedException) {
+                        // The writer stopped, nobody waits for the exception.
+                    }
+                } catch (InterruptedException exception) {
+                    // The writer stopped and no more chunks are needed.
+                }
+            });
+
+            long importedRows = 0;
+            long rejectedRows = 0;
+            List<RejectedLine> rejectedLines = new ArrayList<>();
+            Map<Long, Long> generatedIds = new HashMap<>();
+            while (true) {
+                CompletableFuture<ParsedChunk<T>> next = parsedChunks.take();
+                if (next == endOfFile) {
+                    break;
+                }
+                ParsedChunk<T> chunk = join(next);
+                if (!chunk.rows.isEmpty()) {
+                    chunkWriter.write(chunk.rows);
+                }
+                for (int i = 0; i < chunk.rows.size(); i++) {
+                    if (chunk.sourceIds.get(i) != null) {
+                        generatedIds.put(chunk.sourceIds.get(i), generatedId.applyAsLong(chunk.rows.get(i)));
+                    }
+                }
+                importedRows += chunk.rows.size();
+                rejectedRows += chunk.rejectedLines.size();
+                for (RejectedLine rejectedLine : chunk.rejectedLines) {
+                    if (rejectedLines.size() < MAX_REPORTED_REJECTIONS) {
+                        rejectedLines.add(rejectedLine);
+                    }
+                }
+            }
+            return new Result(importedRows, rejectedRows, Collections.unmodifiableList(rejectedLines),
+                    Collections.unmodifiableMap(generatedIds));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import wurde abgebrochen", exception);
+        } finally {
+            if (readerThread != null) {
+                readerThread.interrupt();
+            }
+            workers.shutdownNow();
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the records of the file and passes them on in chunks. A record ends with a line break outside of quotes,
+     * so a record with line breaks in a quoted field spans several lines.
+     */
+    private static void readChunks(BufferedReader reader, ChunkConsumer consumer)
+            throws IOException, InterruptedException {
+        RawChunk chunk = new RawChunk();
+        StringBuilder record = new StringBuilder();
+        boolean insideQuotes = false;
+        long lineNumber = 1;
+        long firstLineOfRecord = 2;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            boolean continued = insideQuotes;
+            for (int i = line.indexOf('"'); i >= 0; i = line.indexOf('"', i + 1)) {
+                insideQuotes = !insideQuotes;
+            }
+            if (continued) {
+                record.append('\n').append(line);
+            } else {
+                firstLineOfRecord = lineNumber;
+                if (insideQuotes) {
+                    record.append(line);
+                }
+            }
+            if (insideQuotes) {
+                continue;
+            }
+            // Most records fit in one line and are passed on without copying.
+            String completeRecord = continued ? record.toString() : line;
+            record.setLength(0);
+            if (completeRecord.isEmpty()) {
+                continue;
+            }
+            chunk.records.add(completeRecord);
+            chunk.lineNumbers.add(firstLineOfRecord);
+            if (chunk.records.size() == CHUNK_SIZE) {
+                consumer.accept(chunk);
+                chunk = new RawChunk();
+            }
+        }
+        if (insideQuotes) {
+            // The record is rejected by the worker, because its quote is not closed.
+            chunk.records.add(record.toString());
+            chunk.lineNumbers.add(firstLineOfRecord);
+        }
+        if (!chunk.records.isEmpty()) {
+            consumer.accept(chunk);
+        }
+    }
+
+    private static <T> ParsedChunk<T> parseChunk(RawChunk rawChunk, int columnCount, int[] columnIndexes, int idIndex,
+                                                 RecordParser<T> parser) {
+        ParsedChunk<T> chunk = new ParsedChunk<>();
+        for (int i = 0; i < rawChunk.records.size(); i++) {
+            try {
+                String[] fields = splitRecord(rawChunk.records.get(i));
+                if (fields.length != columnCount) {
+                    throw new IllegalArgumentException(fields.length + " statt " + columnCount + " Felder");
+                }
+                Long sourceId = idIndex < 0 || fields[idIndex].isBlank() ? null : parseId(fields[idIndex], "Id");
+                chunk.rows.add(parser.parse(fields, columnIndexes));
+                chunk.sourceIds.add(sourceId);
+            } catch (IllegalArgumentException exception) {
+                chunk.rejectedLines.add(new RejectedLine(rawChunk.lineNumbers.get(i), exception.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Splits a CSV record into its fields. Quotes around a field are removed and doubled quotes inside of it are
+     * replaced by single ones. Fields are cut out of the record as a whole, only fields with doubled quotes are copied
+     * piece by piece.
+     */
+    static String[] splitRecord(String record) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            if (start < record.length() && record.charAt(start) == '"') {
+                StringBuilder field = null;
+                int from = start + 1;
+                int quote = record.indexOf('"', from);
+                while (quote >= 0 && quote + 1 < record.length() && record.charAt(quote + 1) == '"') {
+                    if (field == null) {
+                        field = new StringBuilder();
+                    }
+                    field.append(record, from, quote + 1);
+                    from = quote + 2;
+                    quote = record.indexOf('"', from);
+                }
+                if (quote < 0) {
+                    throw new IllegalArgumentException("Anführungszeichen wird nicht geschlossen");
+                }
+                fields.add(field == null ? record.substring(from, quote) : field.append(record, from, quote).toString());
+                start = quote + 1;
+                if (start == record.length()) {
+                    break;
+                }
+                if (record.charAt(start) != ',') {
+                    throw new IllegalArgumentException("Nach dem Anführungszeichen fehlt ein Komma");
+                }
+                start++;
+            } else {
+                int comma = record.indexOf(',', start);
+                if (comma < 0) {
+                    fields.add(record.substring(start));
+                    break;
+                }
+                fields.add(record.substring(start, comma));
+                start = comma + 1;
+            }
+        }
+        return fields.toArray(new String[0]);
+    }
+
+    private static String requireText(String value, String fieldName) {
+        if (value.isBlank()) {
+            throw new IllegalArgumentException(fieldName + " fehlt");
+        }
+        return value;
+    }
+
+    private static long parseId(String value, String fieldName) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(fieldName + " \"" + value + "\" ist keine Zahl");
+        }
+    }
+
+    private static LocalDate parseDate(String value, String fieldName) {
+        try {
+            return DateConverter.convertStringToLocalDate(value);
+        } catch (DateTimeException exception) {
+            throw new IllegalArgumentException(fieldName + " \"" + value + "\" ist kein Datum im Format yyyy-MM-dd");
+        }
+    }
+
+    private static LocalTime parseTime(String value, String fieldName) {
+        try {
+            return DateConverter.convertStringToLocalTime(value);
+        } catch (DateTimeException exception) {
+            throw new IllegalArgumentException(fieldName + " \"" + value + "\" ist keine Uhrzeit im Format HH:mm");
+        }
+    }
+
+    private static int indexOf(String[] header, String column) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].trim().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String removeByteOrderMark(String line) throws IOException {
+        if (line == null) {
+            throw new IOException("Die Datei ist leer");
+        }
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+
+    private static <T> ParsedChunk<T> join(CompletableFuture<ParsedChunk<T>> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw exception;
+        }
+    }
+
+    private static BufferedReader openReader(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+}
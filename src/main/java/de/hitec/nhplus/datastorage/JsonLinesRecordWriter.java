@@ -0,0 +1,70 @@
+package de.hitec.nhplus.datastorage;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records as JSON Lines: one JSON object per line, whose keys are the column names. Texts are written as JSON
+ * strings, <code>null</code> as JSON null.
+ */
+class JsonLinesRecordWriter extends RecordWriter {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    JsonLinesRecordWriter(Writer writer, String[] columns) {
+        super(writer, columns);
+    }
+
+    @Override
+    protected void writeHeader() {
+        // Every object names its keys, so JSON Lines have no header.
+    }
+
+    @Override
+    void endRecord() throws IOException {
+        this.writer.write("}\n");
+    }
+
+    @Override
+    protected void startField() throws IOException {
+        this.writer.write(this.fieldIndex == 0 ? "{" : ",");
+        writeString(this.columns[this.fieldIndex]);
+        this.writer.write(':');
+    }
+
+    @Override
+    protected void writeEscaped(String value) throws IOException {
+        if (value == null) {
+            this.writer.write("null");
+        } else {
+            writeString(value);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        this.writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+            this.writer.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"' -> this.writer.write("\\\"");
+                case '\\' -> this.writer.write("\\\\");
+                case '\n' -> this.writer.write("\\n");
+                case '\r' -> this.writer.write("\\r");
+                case '\t' -> this.writer.write("\\t");
+                default -> {
+                    this.writer.write("\\u00");
+                    this.writer.write(HEX_DIGITS[c >> 4]);
+                    this.writer.write(HEX_DIGITS[c & 0xF]);
+                }
+            }
+        }
+        this.writer.write(value, start, value.length() - start);
+        this.writer.write('"');
+    }
+}
@@ -0,0 +1,98 @@
+package de.hitec.nhplus.datastorage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of the latencies and row counts of one DAO operation in one window of time. The latencies are
+ * counted in log-linear buckets: every power of two is split into eight buckets, so a percentile is at most 12.5 %
+ * above the real value. Recording only increments counters and never allocates, so it is cheap enough for every call.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final long startMillis = System.currentTimeMillis();
+
+    /**
+     * Counts one call of the operation.
+     *
+     * @param nanos Latency of the call in nanoseconds.
+     * @param rowCount Number of rows, which the call read or wrote.
+     */
+    void record(long nanos, long rowCount) {
+        nanos = Math.max(0, nanos);
+        this.buckets.incrementAndGet(bucketOf(nanos));
+        this.totalNanos.add(nanos);
+        this.rows.add(rowCount);
+        if (nanos > this.maxNanos.get()) {
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Computes the statistics of this window. Calls, which are recorded at the same time, may be missing in some of
+     * the values.
+     *
+     * @param operation Name of the operation.
+     * @return Statistics of the window.
+     */
+    OperationStatistics toStatistics(String operation) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+            count += counts[i];
+        }
+        long maxNanos = this.maxNanos.get();
+        long windowMillis = Math.max(1, System.currentTimeMillis() - this.startMillis);
+        return new OperationStatistics(operation, count, this.rows.sum(),
+                count == 0 ? 0 : this.totalNanos.sum() / count, percentile(counts, count, 0.5, maxNanos),
+                percentile(counts, count, 0.99, maxNanos), maxNanos, this.startMillis, windowMillis);
+    }
+
+    /**
+     * Returns the upper bound of the bucket, which contains the given percentile, but at most the maximum.
+     */
+    private static long percentile(long[] counts, long count, double quantile, long maxNanos) {
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(lowerBoundOf(i + 1) - 1, maxNanos);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Values below 8 get their own bucket, larger values are split by their highest bit and the next three bits.
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket >= BUCKETS) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,51 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * One step of the database schema. A migration has a unique version and consists of SQL statements, which bring a
+ * database from the previous version to this version. Migrations are never changed after they were released, new
+ * changes of the schema always get a new migration.
+ */
+public class Migration {
+
+    private final int version;
+    private final String description;
+    private final String[] statements;
+
+    /**
+     * Constructor to initiate an object of class <code>Migration</code> with the given parameter.
+     *
+     * @param version Version of the schema after this migration.
+     * @param description Short description of the change.
+     * @param statements SQL statements, which are executed in the given order.
+     */
+    public Migration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = statements;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Executes the statements of this migration on the given connection.
+     *
+     * @param connection Connection to the database to migrate.
+     */
+    public void apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : this.statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
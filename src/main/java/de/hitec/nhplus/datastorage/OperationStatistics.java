@@ -0,0 +1,94 @@
+package de.hitec.nhplus.datastorage;
+
+/**
+ * Statistics of one DAO operation since the start of the current window of its {@link DaoMetrics}. The latencies
+ * contain the time waiting for a connection of the pool, executing the statement and mapping the rows.
+ */
+public class OperationStatistics {
+
+    private final String operation;
+    private final long count;
+    private final long rows;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+    private final long windowStart;
+    private final long windowMillis;
+
+    /**
+     * Constructor to initiate the statistics of one window.
+     *
+     * @param operation Name of the operation.
+     * @param count Number of calls.
+     * @param rows Number of rows read or written by all calls.
+     * @param meanNanos Mean latency in nanoseconds.
+     * @param p50Nanos Median latency in nanoseconds.
+     * @param p99Nanos 99th percentile of the latency in nanoseconds.
+     * @param maxNanos Maximum latency in nanoseconds.
+     * @param windowStart Start of the window in milliseconds since the epoch.
+     * @param windowMillis Length of the window in milliseconds.
+     */
+    public OperationStatistics(String operation, long count, long rows, long meanNanos, long p50Nanos, long p99Nanos,
+                               long maxNanos, long windowStart, long windowMillis) {
+        this.operation = operation;
+        this.count = count;
+        this.rows = rows;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+        this.windowStart = windowStart;
+        this.windowMillis = windowMillis;
+    }
+
+    public String getOperation() {
+        return this.operation;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+
+    public double getMeanMicros() {
+        return this.meanNanos / 1000.0;
+    }
+
+    public double getP50Micros() {
+        return this.p50Nanos / 1000.0;
+    }
+
+    public double getP99Micros() {
+        return this.p99Nanos / 1000.0;
+    }
+
+    public double getMaxMicros() {
+        return this.maxNanos / 1000.0;
+    }
+
+    public double getCallsPerSecond() {
+        return this.count * 1000.0 / this.windowMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return this.rows * 1000.0 / this.windowMillis;
+    }
+
+    public long getWindowStart() {
+        return this.windowStart;
+    }
+
+    public long getWindowMillis() {
+        return this.windowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, %d rows, p50 %.1f µs, p99 %.1f µs, max %.1f µs", this.operation, this.count,
+                this.rows, getP50Micros(), getP99Micros(), getMaxMicros());
+    }
+}
@@ -6,38 +6,217 @@ import de.hitec.nhplus.utils.DateConverter;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
 
 /**
  * Implements the Interface <code>DaoImp</code>. Overrides methods to generate specific <code>PreparedStatements</code>,
  * to execute the specific SQL Statements.
+ * <p>
+ * Loaded patients are kept in an {@link IdentityMap}, so <code>read()</code> of a known patient does not query the
+ * database. Every row, which is read from the database, replaces the cached patient of its pid, so the identity map
+ * always holds the last state read or written. All changes made by this class are written through to the identity
+ * map.
  */
 public class PatientDao extends DaoImp<Patient> {
 
+    public static final int DEFAULT_CACHE_CAPACITY = 10_000;
+
+    /**
+     * The editable columns of the table <code>patient</code>.
+     */
+    public enum Column {
+        FIRSTNAME("firstname"),
+        SURNAME("surname"),
+        DATE_OF_BIRTH("dateOfBirth"),
+        CARE_LEVEL("carelevel"),
+        ROOM_NUMBER("roomnumber"),
+        ASSETS("assets");
+
+        private final String name;
+
+        Column(String name) {
+            this.name = name;
+        }
+    }
+
+    private final IdentityMap<Patient> cache;
+    private final DaoMetrics.Operation updateColumnsMetrics;
+    private final DaoMetrics.Operation readAllPidsMetrics;
+
+    /**
+     * The constructor initiates an object of <code>PatientDao</code> with its own identity map and passes the
+     * connection pool to its super class.
+     *
+     * @param connectionPool Pool of the connections to execute the SQL-statements.
+     */
+    public PatientDao(ConnectionPool connectionPool) {
+        this(connectionPool, new IdentityMap<>(DEFAULT_CACHE_CAPACITY));
+    }
+
+    /**
+     * The constructor initiates an object of <code>PatientDao</code>, which shares the given identity map, and passes
+     * the connection pool to its super class.
+     *
+     * @param connectionPool Pool of the connections to execute the SQL-statements.
+     * @param cache Identity map of the patients of this database.
+     */
+    public PatientDao(ConnectionPool connectionPool, IdentityMap<Patient> cache) {
+        super(connectionPool);
+        this.cache = cache;
+        this.updateColumnsMetrics = this.metrics.operation("updateColumns");
+        this.readAllPidsMetrics = this.metrics.operation("readAllPids");
+    }
+
+    /**
+     * Returns the patient with the given pid from the identity map and only queries the database, if the patient was
+     * not loaded yet.
+     *
+     * @param pid Patient id.
+     * @return The patient or <code>null</code>, if there is no patient with this pid.
+     */
+    @Override
+    public Patient read(long pid) throws SQLException {
+        Patient patient = this.cache.get(pid);
+        if (patient == null) {
+            patient = super.read(pid);
+        }
+        return patient;
+    }
+
+    /**
+     * Reads the patient with the given pid from the database, even if it is in the identity map, and caches the
+     * state read. Use it, when the row may have been changed by another connection, for example after the
+     * {@link ChangeFeed} published a change of it.
+     *
+     * @param pid Patient id.
+     * @return The patient or <code>null</code>, if there is no patient with this pid.
+     */
+    public Patient reload(long pid) throws SQLException {
+        this.cache.invalidate(pid);
+        return super.read(pid);
+    }
+
+    @Override
+    public Patient create(Patient patient) throws SQLException {
+        super.create(patient);
+        this.cache.put(patient.getPid(), patient);
+        return patient;
+    }
+
+    @Override
+    public void createAll(Collection<Patient> patients) throws SQLException {
+        super.createAll(patients);
+        for (Patient patient : patients) {
+            this.cache.put(patient.getPid(), patient);
+        }
+    }
+
+    /**
+     * Updates the given patient and makes it the cached instance of its pid. If the update fails, the patient is
+     * removed from the identity map, so the next <code>read()</code> loads the persisted state again.
+     *
+     * @param patient Patient to update.
+     */
+    @Override
+    public void update(Patient patient) throws SQLException {
+        try {
+            super.update(patient);
+            this.cache.put(patient.getPid(), patient);
+        } catch (SQLException exception) {
+            this.cache.invalidate(patient.getPid());
+            throw exception;
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Patient> patients) throws SQLException {
+        try {
+            super.updateAll(patients);
+            for (Patient patient : patients) {
+                this.cache.put(patient.getPid(), patient);
+            }
+        } catch (SQLException exception) {
+            for (Patient patient : patients) {
+                this.cache.invalidate(patient.getPid());
+            }
+            throw exception;
+        }
+    }
+
     /**
-     * The constructor initiates an object of <code>PatientDao</code> and passes the connection to its super class.
+     * Writes only the given columns of the given patients in one transaction. Each patient gets one
+     * <code>UPDATE</code> statement, which sets just its changed columns.
      *
-     * @param connection Object of <code>Connection</code> to execute the SQL-statements.
+     * @param changes New values of the changed columns per pid. Dates of birth in the format yyyy-MM-dd.
      */
-    public PatientDao(Connection connection) {
-        super(connection);
+    public void updateColumns(Map<Long, ? extends Map<Column, String>> changes) throws SQLException {
+        DaoMetrics.Call call = this.updateColumnsMetrics.start();
+        try {
+            this.connectionPool.executeInTransaction(connection -> {
+                for (Map.Entry<Long, ? extends Map<Column, String>> change : changes.entrySet()) {
+                    getUpdateColumnsStatement(connection, change.getKey(), change.getValue()).executeUpdate();
+                }
+            });
+            call.finish(changes.size());
+        } catch (SQLException exception) {
+            for (long pid : changes.keySet()) {
+                this.cache.invalidate(pid);
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Reads the ids of all patients without reading the patients themselves, for example to check references to
+     * patients.
+     *
+     * @return Ids of all patients.
+     */
+    public Set<Long> readAllPids() throws SQLException {
+        final String SQL = "SELECT pid FROM patient";
+        DaoMetrics.Call call = this.readAllPidsMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try {
+            Set<Long> pids = new HashSet<>();
+            try (ResultSet result = this.prepareStatement(connection, SQL).executeQuery()) {
+                while (result.next()) {
+                    pids.add(result.getLong(1));
+                }
+            }
+            call.finish(pids.size());
+            return pids;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    @Override
+    public void deleteById(long pid) throws SQLException {
+        super.deleteById(pid);
+        this.cache.invalidate(pid);
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to persist the given object of <code>Patient</code>.
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param patient Object of <code>Patient</code> to persist.
      * @return <code>PreparedStatement</code> to insert the given patient.
      */
     @Override
-    protected PreparedStatement getCreateStatement(Patient patient) {
+    protected PreparedStatement getCreateStatement(Connection connection, Patient patient) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "INSERT INTO patient (firstname, surname, dateOfBirth, carelevel, roomnumber, assets) " +
                     "VALUES (?, ?, ?, ?, ?, ?)";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setString(1, patient.getFirstName());
             preparedStatement.setString(2, patient.getSurname());
-            preparedStatement.setString(3, patient.getDateOfBirth());
+            preparedStatement.setLong(3, DateConverter.convertStringToLocalDate(patient.getDateOfBirth()).toEpochDay());
             preparedStatement.setString(4, patient.getCareLevel());
             preparedStatement.setString(5, patient.getRoomNumber());
             preparedStatement.setString(6, patient.getAssets());
@@ -47,18 +226,30 @@ public class PatientDao extends DaoImp<Patient> {
         return preparedStatement;
     }
 
+    /**
+     * Writes the id, which the database generated for a new row, back into the given patient.
+     *
+     * @param patient Patient, which was persisted by <code>createAll()</code>.
+     * @param pid Generated patient id.
+     */
+    @Override
+    protected void setGeneratedKey(Patient patient, long pid) {
+        patient.setPid(pid);
+    }
+
     /**
      * Generates a <code>PreparedStatement</code> to query a patient by a given patient id (pid).
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param pid Patient id to query.
      * @return <code>PreparedStatement</code> to query the patient.
      */
     @Override
-    protected PreparedStatement getReadByIDStatement(long pid) {
+    protected PreparedStatement getReadByIDStatement(Connection connection, long pid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "SELECT * FROM patient WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setLong(1, pid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -70,37 +261,66 @@ public class PatientDao extends DaoImp<Patient> {
      * Maps a <code>ResultSet</code> of one patient to an object of <code>Patient</code>.
      *
      * @param result ResultSet with a single row. Columns will be mapped to an object of class <code>Patient</code>.
-     * @return Object of class <code>Patient</code> with the data from the resultSet.
+     * @return Object of class <code>Patient</code> with the data from the resultSet, which is now the cached instance
+     * of its pid.
      */
     @Override
     protected Patient getInstanceFromResultSet(ResultSet result) throws SQLException {
-        return new Patient(
+        Patient patient = new Patient(
                 result.getInt(1),
                 result.getString(2),
                 result.getString(3),
-                DateConverter.convertStringToLocalDate(result.getString(4)),
+                LocalDate.ofEpochDay(result.getLong(4)),
                 result.getString(5),
                 result.getString(6),
                 result.getString(7));
+        // The row may have been changed by another connection or an import since the patient was cached. The cached
+        // instance is replaced instead of updated, because it may be shown in a table and must only be changed on
+        // the JavaFX application thread.
+        this.cache.put(patient.getPid(), patient);
+        return patient;
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to query all patients.
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @return <code>PreparedStatement</code> to query all patients.
      */
     @Override
-    protected PreparedStatement getReadAllStatement() {
+    protected PreparedStatement getReadAllStatement(Connection connection) {
         PreparedStatement statement = null;
         try {
             final String SQL = "SELECT * FROM patient";
-            statement = this.connection.prepareStatement(SQL);
+            statement = this.prepareStatement(connection, SQL);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
         return statement;
     }
 
+    /**
+     * Generates a <code>PreparedStatement</code> to query one page of patients ordered by the patient id (pid).
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param afterPid Id of the last patient of the previous page.
+     * @param limit Maximum number of patients of the page.
+     * @return <code>PreparedStatement</code> to query the page.
+     */
+    @Override
+    protected PreparedStatement getReadPageStatement(Connection connection, long afterPid, int limit) {
+        PreparedStatement preparedStatement = null;
+        try {
+            final String SQL = "SELECT * FROM patient WHERE pid > ? ORDER BY pid LIMIT ?";
+            preparedStatement = this.prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, afterPid);
+            preparedStatement.setInt(2, limit);
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        return preparedStatement;
+    }
+
     /**
      * Maps a <code>ResultSet</code> of all patients to an <code>ArrayList</code> of <code>Patient</code> objects.
      *
@@ -112,11 +332,7 @@ public class PatientDao extends DaoImp<Patient> {
     protected ArrayList<Patient> getListFromResultSet(ResultSet result) throws SQLException {
         ArrayList<Patient> list = new ArrayList<>();
         while (result.next()) {
-            LocalDate date = DateConverter.convertStringToLocalDate(result.getString(4));
-            Patient patient = new Patient(result.getInt(1), result.getString(2),
-                    result.getString(3), date,
-                    result.getString(5), result.getString(6), result.getString(7));
-            list.add(patient);
+            list.add(getInstanceFromResultSet(result));
         }
         return list;
     }
@@ -125,11 +341,12 @@ public class PatientDao extends DaoImp<Patient> {
      * Generates a <code>PreparedStatement</code> to update the given patient, identified
      * by the id of the patient (pid).
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param patient Patient object to update.
      * @return <code>PreparedStatement</code> to update the given patient.
      */
     @Override
-    protected PreparedStatement getUpdateStatement(Patient patient) {
+    protected PreparedStatement getUpdateStatement(Connection connection, Patient patient) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL =
@@ -141,10 +358,10 @@ public class PatientDao extends DaoImp<Patient> {
                             "roomnumber = ?, " +
                             "assets = ? " +
                             "WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setString(1, patient.getFirstName());
             preparedStatement.setString(2, patient.getSurname());
-            preparedStatement.setString(3, patient.getDateOfBirth());
+            preparedStatement.setLong(3, DateConverter.convertStringToLocalDate(patient.getDateOfBirth()).toEpochDay());
             preparedStatement.setString(4, patient.getCareLevel());
             preparedStatement.setString(5, patient.getRoomNumber());
             preparedStatement.setString(6, patient.getAssets());
@@ -155,18 +372,46 @@ public class PatientDao extends DaoImp<Patient> {
         return preparedStatement;
     }
 
+    /**
+     * Generates a <code>PreparedStatement</code> to update only the given columns of a patient.
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param pid Id of the patient to update.
+     * @param values New values of the columns to update.
+     * @return <code>PreparedStatement</code> to update the given columns.
+     */
+    private PreparedStatement getUpdateColumnsStatement(Connection connection, long pid, Map<Column, String> values)
+            throws SQLException {
+        StringJoiner assignments = new StringJoiner(", ", "UPDATE patient SET ", " WHERE pid = ?");
+        for (Column column : values.keySet()) {
+            assignments.add(column.name + " = ?");
+        }
+        PreparedStatement preparedStatement = this.prepareStatement(connection, assignments.toString());
+        int index = 1;
+        for (Map.Entry<Column, String> value : values.entrySet()) {
+            if (value.getKey() == Column.DATE_OF_BIRTH) {
+                preparedStatement.setLong(index++, DateConverter.convertStringToLocalDate(value.getValue()).toEpochDay());
+            } else {
+                preparedStatement.setString(index++, value.getValue());
+            }
+        }
+        preparedStatement.setLong(index, pid);
+        return preparedStatement;
+    }
+
     /**
      * Generates a <code>PreparedStatement</code> to delete a patient with the given id.
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param pid Id of the patient to delete.
      * @return <code>PreparedStatement</code> to delete patient with the given id.
      */
     @Override
-    protected PreparedStatement getDeleteStatement(long pid) {
+    protected PreparedStatement getDeleteStatement(Connection connection, long pid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "DELETE FROM patient WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setLong(1, pid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -0,0 +1,139 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects changed columns of patients and writes them behind. Every change restarts a short quiet period. When it
+ * ends without further changes, all collected changes are written in one transaction, and only the changed columns
+ * of each patient. Several edits of one patient in a row therefore cost one <code>UPDATE</code> instead of one per
+ * cell. Call <code>flush()</code> to write the changes immediately, for example before another view is shown.
+ * <p>
+ * Errors of the background writes are passed to the error handler, because there is no caller to throw them to.
+ */
+public class PatientUpdateQueue {
+
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 500;
+
+    private final PatientDao dao;
+    private final long quietPeriodMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+    private Map<Long, EnumMap<PatientDao.Column, String>> pendingChanges = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private volatile Consumer<SQLException> errorHandler = Throwable::printStackTrace;
+
+    /**
+     * Constructor to initiate a queue, which writes its changes with the given DAO.
+     *
+     * @param dao DAO to write the changes.
+     * @param quietPeriodMillis Time without changes in milliseconds, after which the changes are written.
+     */
+    public PatientUpdateQueue(PatientDao dao, long quietPeriodMillis) {
+        this.dao = dao;
+        this.quietPeriodMillis = quietPeriodMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "patient-update-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the handler, which gets the errors of writes. The handler may be called from a background thread.
+     *
+     * @param errorHandler Handler for failed writes.
+     */
+    public void setErrorHandler(Consumer<SQLException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Records the new value of one column of a patient and restarts the quiet period. A later value of the same
+     * column replaces the earlier one.
+     *
+     * @param pid Id of the changed patient.
+     * @param column Changed column.
+     * @param value New value of the column.
+     */
+    public synchronized void add(long pid, PatientDao.Column column, String value) {
+        this.pendingChanges.computeIfAbsent(pid, key -> new EnumMap<>(PatientDao.Column.class)).put(column, value);
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+        }
+        this.scheduledFlush = this.scheduler.schedule(this::flush, this.quietPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes all collected changes immediately in one transaction and waits until they are written. Errors are passed
+     * to the error handler.
+     */
+    public void flush() {
+        SQLException exception = write(false);
+        if (exception != null) {
+            this.errorHandler.accept(exception);
+        }
+    }
+
+    /**
+     * Writes the remaining changes and stops the background thread. Unlike <code>flush()</code>, a failed write is
+     * returned to the caller instead of the error handler, and its changes stay in the queue, so the caller can show
+     * the error before the application exits and call <code>close()</code> again.
+     *
+     * @return Error of the failed write or <code>null</code>, if all changes are written.
+     */
+    public SQLException close() {
+        SQLException exception = write(true);
+        if (exception == null) {
+            this.scheduler.shutdown();
+        }
+        return exception;
+    }
+
+    /**
+     * Writes all collected changes in one transaction.
+     *
+     * @param keepOnError <code>true</code>, if the changes of a failed write should stay in the queue.
+     * @return Error of the failed write or <code>null</code>.
+     */
+    private SQLException write(boolean keepOnError) {
+        // Only one write at a time, so changes are written in the order they were collected.
+        synchronized (this.flushLock) {
+            Map<Long, EnumMap<PatientDao.Column, String>> changes;
+            synchronized (this) {
+                if (this.scheduledFlush != null) {
+                    this.scheduledFlush.cancel(false);
+                    this.scheduledFlush = null;
+                }
+                changes = this.pendingChanges;
+                this.pendingChanges = new LinkedHashMap<>();
+            }
+            if (changes.isEmpty()) {
+                return null;
+            }
+            try {
+                this.dao.updateColumns(changes);
+                return null;
+            } catch (SQLException exception) {
+                if (keepOnError) {
+                    synchronized (this) {
+                        // Changes, which were added during the write, are newer than the failed ones.
+                        for (Map.Entry<Long, EnumMap<PatientDao.Column, String>> entry : this.pendingChanges.entrySet()) {
+                            changes.computeIfAbsent(entry.getKey(), key -> new EnumMap<>(PatientDao.Column.class))
+                                    .putAll(entry.getValue());
+                        }
+                        this.pendingChanges = changes;
+                    }
+                }
+                return exception;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.hitec.nhplus.datastorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records field by field to a <code>Writer</code>, so a record is never held as a whole in memory. The column
+ * names are given once, before the first record.
+ */
+abstract class RecordWriter implements Closeable {
+
+    protected final Writer writer;
+    protected final String[] columns;
+    protected int fieldIndex;
+
+    /**
+     * Constructor to initiate a writer of records with the given columns.
+     *
+     * @param writer Writer of the export file.
+     * @param columns Names of the columns in the order, in which the fields of each record are written.
+     */
+    protected RecordWriter(Writer writer, String[] columns) {
+        this.writer = writer;
+        this.columns = columns;
+    }
+
+    /**
+     * Creates the writer of the given format.
+     *
+     * @param format Format of the export file.
+     * @param writer Writer of the export file.
+     * @param columns Names of the columns.
+     * @return <code>RecordWriter</code>, which has already written the header, if the format has one.
+     */
+    static RecordWriter of(Exporter.Format format, Writer writer, String[] columns) throws IOException {
+        RecordWriter recordWriter = switch (format) {
+            case CSV -> new CsvRecordWriter(writer, columns);
+            case JSON_LINES -> new JsonLinesRecordWriter(writer, columns);
+        };
+        recordWriter.writeHeader();
+        return recordWriter;
+    }
+
+    protected abstract void writeHeader() throws IOException;
+
+    void startRecord() throws IOException {
+        this.fieldIndex = 0;
+    }
+
+    /**
+     * Writes the next field of the current record as number.
+     *
+     * @param value Value of the field.
+     */
+    void writeNumber(long value) throws IOException {
+        startField();
+        this.writer.write(Long.toString(value));
+        this.fieldIndex++;
+    }
+
+    /**
+     * Writes the next field of the current record as text.
+     *
+     * @param value Value of the field, <code>null</code> is written as empty field.
+     */
+    void writeText(String value) throws IOException {
+        startField();
+        writeEscaped(value);
+        this.fieldIndex++;
+    }
+
+    abstract void endRecord() throws IOException;
+
+    /**
+     * Writes, what has to precede the value of the field with the current index, for example the separator.
+     */
+    protected abstract void startField() throws IOException;
+
+    protected abstract void writeEscaped(String value) throws IOException;
+
+    /**
+     * Flushes the buffered records and closes the export file.
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
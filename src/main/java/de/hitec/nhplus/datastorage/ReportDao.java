@@ -0,0 +1,186 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.CareMinutes;
+
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads reports of the care minutes from the table <code>care_minutes_monthly</code>. The triggers of the table
+ * <code>treatment</code> keep it up to date, so the reports read one row per patient and month and never the
+ * treatments themselves.
+ */
+public class ReportDao {
+
+    private final ConnectionPool connectionPool;
+    private final DaoMetrics.Operation perMonthMetrics;
+    private final DaoMetrics.Operation perPatientMetrics;
+    private final DaoMetrics.Operation perCareLevelMetrics;
+    private final DaoMetrics.Operation ofPatientMetrics;
+    private final DaoMetrics.Operation rebuildMetrics;
+
+    /**
+     * The constructor initiates an object of <code>ReportDao</code>.
+     *
+     * @param connectionPool Pool of the connections to execute the SQL-statements.
+     */
+    public ReportDao(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        DaoMetrics metrics = DaoMetrics.of(getClass().getSimpleName());
+        this.perMonthMetrics = metrics.operation("readMinutesPerMonth");
+        this.perPatientMetrics = metrics.operation("readMinutesPerPatient");
+        this.perCareLevelMetrics = metrics.operation("readMinutesPerCareLevel");
+        this.ofPatientMetrics = metrics.operation("readMonthlyMinutesOfPatient");
+        this.rebuildMetrics = metrics.operation("rebuildCareMinutes");
+    }
+
+    /**
+     * Sums the care minutes of all patients per month.
+     *
+     * @param from First month of the report.
+     * @param to Last month of the report.
+     * @return <code>ArrayList</code> with one entry per month with treatments, the group is the month in format
+     * "yyyy-MM".
+     */
+    public List<CareMinutes> readMinutesPerMonth(YearMonth from, YearMonth to) throws SQLException {
+        final String SQL = "SELECT month, SUM(treatment_count), SUM(minutes) FROM care_minutes_monthly " +
+                "WHERE month BETWEEN ? AND ? GROUP BY month ORDER BY month";
+        DaoMetrics.Call call = this.perMonthMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try {
+            PreparedStatement statement = StatementCache.of(connection).prepare(SQL);
+            statement.setInt(1, toMonthKey(from));
+            statement.setInt(2, toMonthKey(to));
+            try (ResultSet result = statement.executeQuery()) {
+                List<CareMinutes> list = getMonthlyListFromResultSet(result);
+                call.finish(list.size());
+                return list;
+            }
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Sums the care minutes of the given months per patient.
+     *
+     * @param from First month of the report.
+     * @param to Last month of the report.
+     * @return <code>ArrayList</code> with one entry per treated patient ordered by name, the group is the name of the
+     * patient.
+     */
+    public List<CareMinutes> readMinutesPerPatient(YearMonth from, YearMonth to) throws SQLException {
+        return readGroupedMinutes("p.surname || ', ' || p.firstname", "p.pid", from, to, this.perPatientMetrics);
+    }
+
+    /**
+     * Sums the care minutes of the given months per care level. The current care level of each patient is used.
+     *
+     * @param from First month of the report.
+     * @param to Last month of the report.
+     * @return <code>ArrayList</code> with one entry per care level, the group is the care level.
+     */
+    public List<CareMinutes> readMinutesPerCareLevel(YearMonth from, YearMonth to) throws SQLException {
+        return readGroupedMinutes("p.carelevel", "p.carelevel", from, to, this.perCareLevelMetrics);
+    }
+
+    /**
+     * Sums the care minutes of one patient per month.
+     *
+     * @param pid Id of the patient.
+     * @param from First month of the report.
+     * @param to Last month of the report.
+     * @return <code>ArrayList</code> with one entry per month with treatments of the patient, the group is the month
+     * in format "yyyy-MM".
+     */
+    public List<CareMinutes> readMonthlyMinutesOfPatient(long pid, YearMonth from, YearMonth to) throws SQLException {
+        final String SQL = "SELECT month, treatment_count, minutes FROM care_minutes_monthly " +
+                "WHERE pid = ? AND month BETWEEN ? AND ? ORDER BY month";
+        DaoMetrics.Call call = this.ofPatientMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try {
+            PreparedStatement statement = StatementCache.of(connection).prepare(SQL);
+            statement.setLong(1, pid);
+            statement.setInt(2, toMonthKey(from));
+            statement.setInt(3, toMonthKey(to));
+            try (ResultSet result = statement.executeQuery()) {
+                List<CareMinutes> list = getMonthlyListFromResultSet(result);
+                call.finish(list.size());
+                return list;
+            }
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Rebuilds the table <code>care_minutes_monthly</code> from all treatments in one transaction. Use it to repair
+     * the sums, for example after treatments were changed while the triggers were missing.
+     */
+    public void rebuildCareMinutes() throws SQLException {
+        DaoMetrics.Call call = this.rebuildMetrics.start();
+        int[] rows = new int[1];
+        this.connectionPool.executeInTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM care_minutes_monthly");
+                rows[0] = statement.executeUpdate(SchemaMigrator.fillCareMinutes());
+            }
+        });
+        call.finish(rows[0]);
+    }
+
+    /**
+     * Sums the care minutes of the given months per group of patients.
+     *
+     * @param groupName SQL expression of the name of the group.
+     * @param groupBy SQL expression, by which the patients are grouped.
+     * @param operation Operation, which records the call.
+     * @return <code>ArrayList</code> with one entry per group ordered by the name of the group.
+     */
+    private List<CareMinutes> readGroupedMinutes(String groupName, String groupBy, YearMonth from, YearMonth to,
+                                                 DaoMetrics.Operation operation) throws SQLException {
+        final String SQL = "SELECT " + groupName + ", SUM(c.treatment_count), SUM(c.minutes) " +
+                "FROM care_minutes_monthly c JOIN patient p ON p.pid = c.pid " +
+                "WHERE c.month BETWEEN ? AND ? GROUP BY " + groupBy + " ORDER BY 1";
+        DaoMetrics.Call call = operation.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try {
+            PreparedStatement statement = StatementCache.of(connection).prepare(SQL);
+            statement.setInt(1, toMonthKey(from));
+            statement.setInt(2, toMonthKey(to));
+            ArrayList<CareMinutes> list = new ArrayList<>();
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    list.add(new CareMinutes(result.getString(1), result.getLong(2), result.getLong(3)));
+                }
+            }
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Maps a <code>ResultSet</code> with the month key, the number of treatments and the minutes to an
+     * <code>ArrayList</code> with one object of class <code>CareMinutes</code> per month.
+     */
+    private static ArrayList<CareMinutes> getMonthlyListFromResultSet(ResultSet result) throws SQLException {
+        ArrayList<CareMinutes> list = new ArrayList<>();
+        while (result.next()) {
+            int month = result.getInt(1);
+            list.add(new CareMinutes(YearMonth.of(month / 100, month % 100).toString(), result.getLong(2),
+                    result.getLong(3)));
+        }
+        return list;
+    }
+
+    /**
+     * Converts a month to the key of the table <code>care_minutes_monthly</code>, for example 2023-06 to 202306.
+     */
+    private static int toMonthKey(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+}
@@ -0,0 +1,49 @@
+package de.hitec.nhplus.datastorage;
+
+/**
+ * Change of one row of a table, which was committed to the database. Changes are published by the {@link ChangeFeed}.
+ */
+public class RowChange {
+
+    /**
+     * Kind of the change.
+     */
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final String table;
+    private final Operation operation;
+    private final long rowId;
+
+    /**
+     * Constructor to initiate an object of class <code>RowChange</code>.
+     *
+     * @param table Name of the changed table.
+     * @param operation Kind of the change.
+     * @param rowId Id of the changed row, which is the primary key of the tables <code>patient</code> and
+     *              <code>treatment</code>.
+     */
+    public RowChange(String table, Operation operation, long rowId) {
+        this.table = table;
+        this.operation = operation;
+        this.rowId = rowId;
+    }
+
+    public String getTable() {
+        return this.table;
+    }
+
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    public long getRowId() {
+        return this.rowId;
+    }
+
+    @Override
+    public String toString() {
+        return this.operation + " " + this.table + " " + this.rowId;
+    }
+}
@@ -0,0 +1,281 @@
+package de.hitec.nhplus.datastorage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Brings the schema of a database up to date. The versions of all applied migrations are stored in the table
+ * <code>schema_version</code>. At every start, all migrations with a higher version than the highest stored one are
+ * applied in ascending order. Each migration runs in its own transaction, so a failing migration leaves the database
+ * at the previous version. Existing data is kept.
+ */
+public class SchemaMigrator {
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Tabellen patient und treatment anlegen",
+                    "CREATE TABLE IF NOT EXISTS patient (" +
+                            "   pid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   firstname TEXT NOT NULL, " +
+                            "   surname TEXT NOT NULL, " +
+                            "   dateOfBirth TEXT NOT NULL, " +
+                            "   carelevel TEXT NOT NULL, " +
+                            "   roomnumber TEXT NOT NULL, " +
+                            "   assets TEXt NOT NULL" +
+                            ")",
+                    "CREATE TABLE IF NOT EXISTS treatment (" +
+                            "   tid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   pid INTEGER NOT NULL, " +
+                            "   treatment_date TEXT NOT NULL, " +
+                            "   begin TEXT NOT NULL, " +
+                            "   end TEXT NOT NULL, " +
+                            "   description TEXT NOT NULL, " +
+                            "   remark TEXT NOT NULL," +
+                            "   FOREIGN KEY (pid) REFERENCES patient (pid) ON DELETE CASCADE " +
+                            ")"),
+            new Migration(2, "Index auf treatment(pid)",
+                    "CREATE INDEX IF NOT EXISTS idx_treatment_pid ON treatment (pid)"),
+            new Migration(3, "Index auf treatment(treatment_date, begin)",
+                    "CREATE INDEX IF NOT EXISTS idx_treatment_date ON treatment (treatment_date, begin)"),
+            // Dates are stored as days since 1970-01-01 and times as minutes since midnight. SQLite cannot change the
+            // type of a column, so both tables are rebuilt and their TEXT values converted while copying.
+            new Migration(4, "Datum und Uhrzeit als Ganzzahlen speichern",
+                    "CREATE TABLE patient_new (" +
+                            "   pid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   firstname TEXT NOT NULL, " +
+                            "   surname TEXT NOT NULL, " +
+                            "   dateOfBirth INTEGER NOT NULL, " +
+                            "   carelevel TEXT NOT NULL, " +
+                            "   roomnumber TEXT NOT NULL, " +
+                            "   assets TEXT NOT NULL" +
+                            ")",
+                    "INSERT INTO patient_new (pid, firstname, surname, dateOfBirth, carelevel, roomnumber, assets) " +
+                            "SELECT pid, firstname, surname, " + epochDay("dateOfBirth") + ", " +
+                            "carelevel, roomnumber, assets FROM patient",
+                    "DROP TABLE patient",
+                    "ALTER TABLE patient_new RENAME TO patient",
+                    "CREATE TABLE treatment_new (" +
+                            "   tid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "   pid INTEGER NOT NULL, " +
+                            "   treatment_date INTEGER NOT NULL, " +
+                            "   begin INTEGER NOT NULL, " +
+                            "   end INTEGER NOT NULL, " +
+                            "   description TEXT NOT NULL, " +
+                            "   remark TEXT NOT NULL," +
+                            "   FOREIGN KEY (pid) REFERENCES patient (pid) ON DELETE CASCADE " +
+                            ")",
+                    "INSERT INTO treatment_new (tid, pid, treatment_date, begin, end, description, remark) " +
+                            "SELECT tid, pid, " + epochDay("treatment_date") + ", " + minuteOfDay("begin") + ", " +
+                            minuteOfDay("end") + ", description, remark FROM treatment",
+                    "DROP TABLE treatment",
+                    "ALTER TABLE treatment_new RENAME TO treatment",
+                    "CREATE INDEX idx_treatment_pid ON treatment (pid)",
+                    "CREATE INDEX idx_treatment_date ON treatment (treatment_date, begin)"),
+            // Full-text index over the descriptions and remarks of the treatments. The index only stores the tokens
+            // and reads the texts from the table treatment, the triggers keep it in sync with that table.
+            new Migration(5, "Volltextsuche über Beschreibung und Bemerkungen der Behandlungen",
+                    "CREATE VIRTUAL TABLE treatment_fts USING fts5(" +
+                            "   description, remark, " +
+                            "   content = 'treatment', content_rowid = 'tid', " +
+                            "   tokenize = 'unicode61 remove_diacritics 2'" +
+                            ")",
+                    "CREATE TRIGGER treatment_fts_insert AFTER INSERT ON treatment BEGIN " +
+                            "   INSERT INTO treatment_fts (rowid, description, remark) " +
+                            "   VALUES (new.tid, new.description, new.remark); " +
+                            "END",
+                    "CREATE TRIGGER treatment_fts_delete AFTER DELETE ON treatment BEGIN " +
+                            "   INSERT INTO treatment_fts (treatment_fts, rowid, description, remark) " +
+                            "   VALUES ('delete', old.tid, old.description, old.remark); " +
+                            "END",
+                    "CREATE TRIGGER treatment_fts_update AFTER UPDATE OF description, remark ON treatment BEGIN " +
+                            "   INSERT INTO treatment_fts (treatment_fts, rowid, description, remark) " +
+                            "   VALUES ('delete', old.tid, old.description, old.remark); " +
+                            "   INSERT INTO treatment_fts (rowid, description, remark) " +
+                            "   VALUES (new.tid, new.description, new.remark); " +
+                            "END",
+                    "INSERT INTO treatment_fts (treatment_fts) VALUES ('rebuild')"),
+            // Care minutes per patient and month. The triggers add and subtract the minutes of every changed
+            // treatment, so reports read one row per patient and month instead of all treatments.
+            new Migration(6, "Pflegeminuten je Patient und Monat",
+                    "CREATE TABLE care_minutes_monthly (" +
+                            "   pid INTEGER NOT NULL, " +
+                            "   month INTEGER NOT NULL, " +
+                            "   treatment_count INTEGER NOT NULL, " +
+                            "   minutes INTEGER NOT NULL, " +
+                            "   PRIMARY KEY (pid, month)" +
+                            ") WITHOUT ROWID",
+                    "CREATE TRIGGER care_minutes_insert AFTER INSERT ON treatment BEGIN " +
+                            addCareMinutes("new") +
+                            "END",
+                    "CREATE TRIGGER care_minutes_delete AFTER DELETE ON treatment BEGIN " +
+                            subtractCareMinutes("old") +
+                            "END",
+                    "CREATE TRIGGER care_minutes_update AFTER UPDATE OF pid, treatment_date, begin, end " +
+                            "ON treatment BEGIN " +
+                            subtractCareMinutes("old") +
+                            addCareMinutes("new") +
+                            "END",
+                    fillCareMinutes())
+    );
+
+    /**
+     * Applies all pending migrations on the writer connection of the given pool.
+     *
+     * @param connectionPool Pool of the database to migrate.
+     */
+    public static void migrate(ConnectionPool connectionPool) throws SQLException {
+        Connection connection = connectionPool.acquireWriter();
+        try {
+            migrate(connection);
+        } finally {
+            connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Applies all pending migrations on the given connection.
+     *
+     * @param connection Connection to the database to migrate.
+     */
+    public static void migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "   version INTEGER PRIMARY KEY, " +
+                    "   description TEXT NOT NULL, " +
+                    "   applied_on TEXT NOT NULL" +
+                    ")");
+        }
+
+        int currentVersion = readCurrentVersion(connection);
+        if (currentVersion >= getLatestVersion()) {
+            return;
+        }
+
+        // Migrations may rebuild tables. Foreign keys can only be switched off outside of a transaction and are
+        // checked for the whole database after all migrations were applied.
+        setForeignKeys(connection, false);
+        try {
+            for (Migration migration : MIGRATIONS) {
+                if (migration.getVersion() > currentVersion) {
+                    apply(connection, migration);
+                }
+            }
+            checkForeignKeys(connection);
+        } finally {
+            setForeignKeys(connection, true);
+        }
+    }
+
+    /**
+     * Returns the version of the newest migration.
+     *
+     * @return The newest version of the schema.
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+
+    private static String epochDay(String column) {
+        return "CAST(julianday(" + column + ") - 2440587.5 AS INTEGER)";
+    }
+
+    private static String minuteOfDay(String column) {
+        return "(CAST(substr(" + column + ", 1, 2) AS INTEGER) * 60 + CAST(substr(" + column + ", 4, 2) AS INTEGER))";
+    }
+
+    /**
+     * Returns the SQL expression of the month of a date as number like 202403, which is the key of the table
+     * <code>care_minutes_monthly</code>.
+     *
+     * @param epochDayColumn Column or expression with the days since 1970-01-01.
+     * @return SQL expression of the month.
+     */
+    static String month(String epochDayColumn) {
+        return "CAST(strftime('%Y%m', " + epochDayColumn + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    /**
+     * Returns the SQL expression of the care minutes of a treatment. The triggers of
+     * <code>care_minutes_monthly</code> and {@link ReportDao#rebuildCareMinutes()} use it, so both always compute the
+     * same sums.
+     *
+     * @param beginColumn Column with the minute of the day, at which the treatment begins.
+     * @param endColumn Column with the minute of the day, at which the treatment ends.
+     * @return SQL expression of the minutes.
+     */
+    static String careMinutes(String beginColumn, String endColumn) {
+        return "(" + endColumn + " - " + beginColumn + ")";
+    }
+
+    /**
+     * Returns the statement, which fills the empty table <code>care_minutes_monthly</code> from all treatments.
+     *
+     * @return SQL statement to fill the table.
+     */
+    static String fillCareMinutes() {
+        return "INSERT INTO care_minutes_monthly (pid, month, treatment_count, minutes) " +
+                "SELECT pid, " + month("treatment_date") + ", COUNT(*), SUM(" + careMinutes("begin", "end") + ") " +
+                "FROM treatment GROUP BY 1, 2";
+    }
+
+    private static String addCareMinutes(String row) {
+        return "INSERT INTO care_minutes_monthly (pid, month, treatment_count, minutes) VALUES (" + row + ".pid, " +
+                month(row + ".treatment_date") + ", 1, " + careMinutes(row + ".begin", row + ".end") + ") " +
+                "ON CONFLICT (pid, month) DO UPDATE SET treatment_count = treatment_count + 1, " +
+                "minutes = minutes + excluded.minutes; ";
+    }
+
+    private static String subtractCareMinutes(String row) {
+        String key = "WHERE pid = " + row + ".pid AND month = " + month(row + ".treatment_date");
+        return "UPDATE care_minutes_monthly SET treatment_count = treatment_count - 1, " +
+                "minutes = minutes - " + careMinutes(row + ".begin", row + ".end") + " " + key + "; " +
+                "DELETE FROM care_minutes_monthly " + key + " AND treatment_count = 0; ";
+    }
+
+    private static int readCurrentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            migration.apply(connection);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description, applied_on) VALUES (?, ?, ?)")) {
+                statement.setInt(1, migration.getVersion());
+                statement.setString(2, migration.getDescription());
+                statement.setString(3, LocalDateTime.now().withNano(0).toString());
+                statement.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw new SQLException("Migration auf Version " + migration.getVersion() + " fehlgeschlagen", exception);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static void checkForeignKeys(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("PRAGMA foreign_key_check")) {
+            if (result.next()) {
+                throw new SQLException("Fremdschlüssel in Tabelle " + result.getString(1) + " verletzt");
+            }
+        }
+    }
+
+    private static void setForeignKeys(Connection connection, boolean enabled) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA foreign_keys = " + (enabled ? "ON" : "OFF"));
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package de.hitec.nhplus.datastorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Logs statements of the DAOs, which take longer than a threshold, with their SQL text, their parameters, the number
+ * of rows and the query plan of SQLite. The {@link StatementCache} wraps every statement it compiles, so the DAOs need
+ * no changes. The threshold is read from the system property <code>nhplus.slowQueryMillis</code>. The log is switched
+ * off, if the property is missing or negative, and the statements are not wrapped at all: the wrappers are dynamic
+ * proxies, which pass every call of a statement and every <code>next()</code> and <code>getX()</code> of its result
+ * sets through reflection, so they are only meant for diagnosing, not for normal operation.
+ * <p>
+ * The time of a query is the time SQLite needs to execute it and to step through its rows, without the time the DAO
+ * needs to map the rows. Parameters may contain patient data, so only the values of ids, dates and times of
+ * treatments and limits are logged, all others are replaced by <code>***</code>.
+ */
+class SlowQueryLog {
+
+    static final String THRESHOLD_PROPERTY = "nhplus.slowQueryMillis";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final Set<String> PUBLIC_PARAMETERS = Set.of("pid", "tid", "treatment_date", "begin", "end",
+            "month", "limit");
+    private static final Pattern COMPARISON = Pattern.compile("(\\w+)\\s*(?:=|<>|!=|<=|>=|<|>|BETWEEN|LIKE|MATCH)\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern SECOND_BOUND = Pattern.compile("(\\w+)\\s+BETWEEN\\s+\\?\\s+AND\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern IN_LIST = Pattern.compile("(\\w+)\\s+IN\\s*\\((?:\\s*\\?\\s*,)*\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern LIMIT = Pattern.compile("(?:LIMIT|OFFSET)\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT = Pattern.compile("^\\s*INSERT\\s+INTO\\s+\\w+\\s*\\(([^)]*)\\)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static volatile long thresholdNanos = readThresholdNanos();
+
+    private SlowQueryLog() {
+    }
+
+    private static long readThresholdNanos() {
+        String value = System.getProperty(THRESHOLD_PROPERTY);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            long millis = Long.parseLong(value.trim());
+            return millis < 0 ? -1 : millis * 1_000_000;
+        } catch (NumberFormatException exception) {
+            LOGGER.warn("Invalid value of {}, the slow query log is switched off", THRESHOLD_PROPERTY);
+            return -1;
+        }
+    }
+
+    /**
+     * Sets the threshold, above which statements are logged. Statements compiled while the log was switched off stay
+     * unwrapped until they leave the statement cache.
+     *
+     * @param millis Threshold in milliseconds, a negative value switches the log off.
+     */
+    static void setThresholdMillis(long millis) {
+        thresholdNanos = millis < 0 ? -1 : millis * 1_000_000;
+    }
+
+    /**
+     * Wraps the given statement, so its slow executions are logged, as long as the log is switched on.
+     *
+     * @param connection Connection of the statement, on which the query plan is read.
+     * @param sql SQL text of the statement.
+     * @param statement Compiled statement.
+     * @return Wrapped statement or the given statement, if the log is switched off.
+     */
+    static PreparedStatement wrap(Connection connection, String sql, PreparedStatement statement) {
+        if (thresholdNanos < 0) {
+            return statement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new TimedStatement(connection, sql, statement));
+    }
+
+    /**
+     * Records the parameters and the execution times of one <code>PreparedStatement</code>.
+     */
+    private static class TimedStatement implements InvocationHandler {
+        private final Connection connection;
+        private final String sql;
+        private final PreparedStatement statement;
+        private final String[] parameterNames;
+        private final Object[] parameters;
+        private int batchSize;
+        private String plan;
+
+        private TimedStatement(Connection connection, String sql, PreparedStatement statement) {
+            this.connection = connection;
+            this.sql = sql;
+            this.statement = statement;
+            this.parameterNames = parameterNamesOf(sql);
+            this.parameters = new Object[this.parameterNames.length];
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index
+                    && index >= 1 && index <= this.parameters.length) {
+                this.parameters[index - 1] = args[1];
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(this.parameters, null);
+            } else if (name.equals("addBatch") && args == null) {
+                this.batchSize++;
+            } else if (name.equals("clearBatch")) {
+                this.batchSize = 0;
+            } else if (name.equals("executeQuery") && args == null) {
+                long start = System.nanoTime();
+                ResultSet result = (ResultSet) invokeOnStatement(method, null);
+                return Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new TimedResultSet(this, result, System.nanoTime() - start));
+            } else if (name.equals("executeUpdate") && args == null) {
+                long start = System.nanoTime();
+                int rows = (int) invokeOnStatement(method, null);
+                finished(System.nanoTime() - start, rows);
+                return rows;
+            } else if (name.equals("executeBatch")) {
+                long start = System.nanoTime();
+                int[] counts = (int[]) invokeOnStatement(method, null);
+                long rows = 0;
+                for (int count : counts) {
+                    rows += Math.max(0, count);
+                }
+                finished(System.nanoTime() - start, rows);
+                this.batchSize = 0;
+                return counts;
+            }
+            return invokeOnStatement(method, args);
+        }
+
+        private Object invokeOnStatement(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(this.statement, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        }
+
+        /**
+         * Logs the execution, if it took longer than the threshold.
+         */
+        private void finished(long nanos, long rows) {
+            long threshold = thresholdNanos;
+            if (threshold < 0 || nanos <= threshold || !LOGGER.isWarnEnabled()) {
+                return;
+            }
+            if (this.plan == null) {
+                this.plan = readPlan(this.connection, this.sql);
+            }
+            LOGGER.warn("Slow statement ({} ms, {} rows{}): {} {}\n{}", nanos / 1_000_000, rows,
+                    this.batchSize > 1 ? ", batch of " + this.batchSize : "", this.sql, formatParameters(),
+                    this.plan);
+        }
+
+        private String formatParameters() {
+            StringJoiner joiner = new StringJoiner(", ", "[", "]");
+            for (int i = 0; i < this.parameters.length; i++) {
+                String name = this.parameterNames[i];
+                boolean visible = name != null && PUBLIC_PARAMETERS.contains(name) && !(this.parameters[i] instanceof String);
+                joiner.add((name == null ? "?" + (i + 1) : name) + "=" + (visible ? this.parameters[i] : "***"));
+            }
+            return joiner.toString();
+        }
+    }
+
+    /**
+     * Counts the rows of a query and the time SQLite spends in <code>next()</code>, and hands both to the statement
+     * when the result set is closed.
+     */
+    private static class TimedResultSet implements InvocationHandler {
+        private final TimedStatement statement;
+        private final ResultSet result;
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        private TimedResultSet(TimedStatement statement, ResultSet result, long executeNanos) {
+            this.statement = statement;
+            this.result = result;
+            this.nanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            try {
+                if (method.getName().equals("next")) {
+                    long start = System.nanoTime();
+                    boolean hasNext = this.result.next();
+                    this.nanos += System.nanoTime() - start;
+                    if (hasNext) {
+                        this.rows++;
+                    }
+                    return hasNext;
+                }
+                if (method.getName().equals("close") && !this.finished) {
+                    this.finished = true;
+                    this.statement.finished(this.nanos, this.rows);
+                }
+                return method.invoke(this.result, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        }
+    }
+
+    /**
+     * Reads the query plan of the given statement as an indented tree, one step per line.
+     */
+    private static String readPlan(Connection connection, String sql) {
+        StringBuilder plan = new StringBuilder();
+        Map<Integer, Integer> depths = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                int depth = depths.getOrDefault(result.getInt("parent"), -1) + 1;
+                depths.put(result.getInt("id"), depth);
+                plan.append("  ".repeat(depth + 1)).append(result.getString("detail")).append('\n');
+            }
+        } catch (SQLException exception) {
+            plan.append("  no query plan: ").append(exception.getMessage()).append('\n');
+        }
+        return plan.toString().stripTrailing();
+    }
+
+    /**
+     * Finds the column of every parameter of the given SQL text. It recognizes comparisons like
+     * <code>pid = ?</code>, both bounds of <code>BETWEEN</code>, lists of <code>IN</code>, <code>LIMIT ?</code> and the column list of an
+     * <code>INSERT</code>. Table prefixes are dropped and question marks in string literals are skipped.
+     *
+     * @return Column name per parameter, <code>null</code> if it is unknown.
+     */
+    static String[] parameterNamesOf(String sql) {
+        int[] positions = new int[sql.length()];
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '\'') {
+                quoted = !quoted;
+            } else if (sql.charAt(i) == '?' && !quoted) {
+                positions[count++] = i;
+            }
+        }
+        String[] names = new String[count];
+        Matcher insert = INSERT.matcher(sql);
+        if (insert.find()) {
+            String[] columns = insert.group(1).split(",");
+            for (int i = 0; i < Math.min(columns.length, count); i++) {
+                names[i] = columns[i].trim();
+            }
+            return names;
+        }
+        for (int index = 0; index < count; index++) {
+            String before = sql.substring(0, positions[index]);
+            Matcher matcher = COMPARISON.matcher(before);
+            if (matcher.find()) {
+                names[index] = matcher.group(1);
+            } else if ((matcher = SECOND_BOUND.matcher(before)).find()) {
+                names[index] = matcher.group(1);
+            } else if ((matcher = IN_LIST.matcher(before)).find()) {
+                names[index] = matcher.group(1);
+            } else if (LIMIT.matcher(before).find()) {
+                names[index] = "limit";
+            }
+        }
+        return names;
+    }
+}
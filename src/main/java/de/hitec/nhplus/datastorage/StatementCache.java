@@ -0,0 +1,105 @@
+package de.hitec.nhplus.datastorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the compiled <code>PreparedStatement</code>s of one <code>Connection</code>, keyed by their SQL text. SQLite
+ * compiles a statement on every call of <code>prepareStatement()</code>, so the DAOs fetch their statements from
+ * this cache instead and only rebind the parameters. The least recently used statement is closed, when the cache
+ * exceeds its capacity. New statements are wrapped by the {@link SlowQueryLog}.
+ */
+public class StatementCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementCache.class);
+    private static final int CAPACITY = 64;
+    private static final Map<Connection, StatementCache> CACHES = new WeakHashMap<>();
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    private StatementCache(Connection connection) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > CAPACITY) {
+                    StatementCache.close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache of the given connection and creates it on first use.
+     *
+     * @param connection Connection the statements are compiled for.
+     * @return <code>StatementCache</code> of the connection.
+     */
+    public static StatementCache of(Connection connection) {
+        synchronized (CACHES) {
+            return CACHES.computeIfAbsent(connection, StatementCache::new);
+        }
+    }
+
+    /**
+     * Closes all cached statements of the given connection. Call this method before the connection gets closed.
+     *
+     * @param connection Connection whose statements will be closed.
+     */
+    public static void release(Connection connection) {
+        StatementCache cache;
+        synchronized (CACHES) {
+            cache = CACHES.remove(connection);
+        }
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the compiled statement for the given SQL text. A statement taken from the cache has its parameters
+     * cleared, so it can be bound again like a freshly prepared one.
+     *
+     * @param sql SQL text of the statement.
+     * @return <code>PreparedStatement</code> ready to be bound.
+     */
+    public synchronized PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = this.statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = SlowQueryLog.wrap(this.connection, sql, this.connection.prepareStatement(sql));
+            this.statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    private synchronized void clear() {
+        for (PreparedStatement statement : this.statements.values()) {
+            close(statement);
+        }
+        this.statements.clear();
+    }
+
+    /**
+     * Closes an evicted or released statement. A failure is only logged, because the statement is not used again and
+     * the caller, which evicted it, only wanted to prepare another one.
+     */
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException exception) {
+            LOGGER.warn("Closing a cached statement failed", exception);
+        }
+    }
+}
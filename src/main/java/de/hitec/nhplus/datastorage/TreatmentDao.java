@@ -1,13 +1,17 @@
 package de.hitec.nhplus.datastorage;
 
 import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.TreatmentOverview;
+import de.hitec.nhplus.model.TreatmentSearchHit;
 import de.hitec.nhplus.utils.DateConverter;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.StringJoiner;
 
 /**
  * Implements the Interface <code>DaoImp</code>. Overrides methods to generate specific <code>PreparedStatements</code>,
@@ -15,32 +19,53 @@ import java.util.List;
  */
 public class TreatmentDao extends DaoImp<Treatment> {
 
+    public static final String SNIPPET_MARK_BEGIN = "»";
+    public static final String SNIPPET_MARK_END = "«";
+
+    private static final String OVERVIEW_SQL = "SELECT t.tid, t.pid, t.treatment_date, t.begin, t.end, " +
+            "t.description, t.remark, p.firstname, p.surname, p.carelevel " +
+            "FROM treatment t JOIN patient p ON p.pid = t.pid";
+
+    private final DaoMetrics.Operation readByPidMetrics;
+    private final DaoMetrics.Operation readPageByPidMetrics;
+    private final DaoMetrics.Operation readBetweenMetrics;
+    private final DaoMetrics.Operation readOverviewsMetrics;
+    private final DaoMetrics.Operation readOverviewsByTidsMetrics;
+    private final DaoMetrics.Operation searchMetrics;
+
     /**
-     * The constructor initiates an object of <code>TreatmentDao</code> and passes the connection to its super class.
+     * The constructor initiates an object of <code>TreatmentDao</code> and passes the connection pool to its super class.
      *
-     * @param connection Object of <code>Connection</code> to execute the SQL-statements.
+     * @param connectionPool Pool of the connections to execute the SQL-statements.
      */
-    public TreatmentDao(Connection connection) {
-        super(connection);
+    public TreatmentDao(ConnectionPool connectionPool) {
+        super(connectionPool);
+        this.readByPidMetrics = this.metrics.operation("readTreatmentsByPid");
+        this.readPageByPidMetrics = this.metrics.operation("readTreatmentsByPidPage");
+        this.readBetweenMetrics = this.metrics.operation("readTreatmentsBetween");
+        this.readOverviewsMetrics = this.metrics.operation("readOverviews");
+        this.readOverviewsByTidsMetrics = this.metrics.operation("readOverviewsByTids");
+        this.searchMetrics = this.metrics.operation("search");
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to persist the given object of <code>Treatment</code>.
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param treatment Object of <code>Treatment</code> to persist.
      * @return <code>PreparedStatement</code> to insert the given patient.
      */
     @Override
-    protected PreparedStatement getCreateStatement(Treatment treatment) {
+    protected PreparedStatement getCreateStatement(Connection connection, Treatment treatment) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "INSERT INTO treatment (pid, treatment_date, begin, end, description, remark) " +
                     "VALUES (?, ?, ?, ?, ?, ?)";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setLong(1, treatment.getPid());
-            preparedStatement.setString(2, treatment.getDate());
-            preparedStatement.setString(3, treatment.getBegin());
-            preparedStatement.setString(4, treatment.getEnd());
+            preparedStatement.setLong(2, treatment.getLocalDate().toEpochDay());
+            preparedStatement.setInt(3, DateConverter.convertLocalTimeToMinutes(treatment.getLocalBegin()));
+            preparedStatement.setInt(4, DateConverter.convertLocalTimeToMinutes(treatment.getLocalEnd()));
             preparedStatement.setString(5, treatment.getDescription());
             preparedStatement.setString(6, treatment.getRemarks());
         } catch (SQLException exception) {
@@ -49,18 +74,30 @@ public class TreatmentDao extends DaoImp<Treatment> {
         return preparedStatement;
     }
 
+    /**
+     * Writes the id, which the database generated for a new row, back into the given treatment.
+     *
+     * @param treatment Treatment, which was persisted by <code>createAll()</code>.
+     * @param tid Generated treatment id.
+     */
+    @Override
+    protected void setGeneratedKey(Treatment treatment, long tid) {
+        treatment.setTid(tid);
+    }
+
     /**
      * Generates a <code>PreparedStatement</code> to query a treatment by a given treatment id (tid).
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param tid Treatment id to query.
      * @return <code>PreparedStatement</code> to query the treatment.
      */
     @Override
-    protected PreparedStatement getReadByIDStatement(long tid) {
+    protected PreparedStatement getReadByIDStatement(Connection connection, long tid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "SELECT * FROM treatment WHERE tid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setLong(1, tid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -76,9 +113,9 @@ public class TreatmentDao extends DaoImp<Treatment> {
      */
     @Override
     protected Treatment getInstanceFromResultSet(ResultSet result) throws SQLException {
-        LocalDate date = DateConverter.convertStringToLocalDate(result.getString(3));
-        LocalTime begin = DateConverter.convertStringToLocalTime(result.getString(4));
-        LocalTime end = DateConverter.convertStringToLocalTime(result.getString(5));
+        LocalDate date = LocalDate.ofEpochDay(result.getLong(3));
+        LocalTime begin = DateConverter.convertMinutesToLocalTime(result.getInt(4));
+        LocalTime end = DateConverter.convertMinutesToLocalTime(result.getInt(5));
         return new Treatment(result.getLong(1), result.getLong(2),
                 date, begin, end, result.getString(6), result.getString(7));
     }
@@ -86,20 +123,43 @@ public class TreatmentDao extends DaoImp<Treatment> {
     /**
      * Generates a <code>PreparedStatement</code> to query all treatments.
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @return <code>PreparedStatement</code> to query all treatments.
      */
     @Override
-    protected PreparedStatement getReadAllStatement() {
+    protected PreparedStatement getReadAllStatement(Connection connection) {
         PreparedStatement statement = null;
         try {
             final String SQL = "SELECT * FROM treatment";
-            statement = this.connection.prepareStatement(SQL);
+            statement = this.prepareStatement(connection, SQL);
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
         return statement;
     }
 
+    /**
+     * Generates a <code>PreparedStatement</code> to query one page of treatments ordered by the treatment id (tid).
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param afterTid Id of the last treatment of the previous page.
+     * @param limit Maximum number of treatments of the page.
+     * @return <code>PreparedStatement</code> to query the page.
+     */
+    @Override
+    protected PreparedStatement getReadPageStatement(Connection connection, long afterTid, int limit) {
+        PreparedStatement preparedStatement = null;
+        try {
+            final String SQL = "SELECT * FROM treatment WHERE tid > ? ORDER BY tid LIMIT ?";
+            preparedStatement = this.prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, afterTid);
+            preparedStatement.setInt(2, limit);
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        return preparedStatement;
+    }
+
     /**
      * Maps a <code>ResultSet</code> of all treatments to an <code>ArrayList</code> with objects of class
      * <code>Treatment</code>.
@@ -112,12 +172,7 @@ public class TreatmentDao extends DaoImp<Treatment> {
     protected ArrayList<Treatment> getListFromResultSet(ResultSet result) throws SQLException {
         ArrayList<Treatment> list = new ArrayList<Treatment>();
         while (result.next()) {
-            LocalDate date = DateConverter.convertStringToLocalDate(result.getString(3));
-            LocalTime begin = DateConverter.convertStringToLocalTime(result.getString(4));
-            LocalTime end = DateConverter.convertStringToLocalTime(result.getString(5));
-            Treatment treatment = new Treatment(result.getLong(1), result.getLong(2),
-                    date, begin, end, result.getString(6), result.getString(7));
-            list.add(treatment);
+            list.add(getInstanceFromResultSet(result));
         }
         return list;
     }
@@ -125,14 +180,15 @@ public class TreatmentDao extends DaoImp<Treatment> {
     /**
      * Generates a <code>PreparedStatement</code> to query all treatments of a patient with a given patient id (pid).
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param pid Patient id to query all treatments referencing this id.
      * @return <code>PreparedStatement</code> to query all treatments of the given patient id (pid).
      */
-    private PreparedStatement getReadAllTreatmentsOfOnePatientByPid(long pid) {
+    private PreparedStatement getReadAllTreatmentsOfOnePatientByPid(Connection connection, long pid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL = "SELECT * FROM treatment WHERE pid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setLong(1, pid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -149,19 +205,345 @@ public class TreatmentDao extends DaoImp<Treatment> {
      * <code>ResultSet</code>.
      */
     public List<Treatment> readTreatmentsByPid(long pid) throws SQLException {
-        ResultSet result = getReadAllTreatmentsOfOnePatientByPid(pid).executeQuery();
-        return getListFromResultSet(result);
+        DaoMetrics.Call call = this.readByPidMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadAllTreatmentsOfOnePatientByPid(connection, pid).executeQuery()) {
+            List<Treatment> list = getListFromResultSet(result);
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Generates a <code>PreparedStatement</code> to query one page of the treatments of a patient ordered by the
+     * treatment id (tid).
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param pid Patient id to query the treatments referencing this id.
+     * @param afterTid Id of the last treatment of the previous page.
+     * @param limit Maximum number of treatments of the page.
+     * @return <code>PreparedStatement</code> to query the page.
+     */
+    private PreparedStatement getReadPageOfTreatmentsOfOnePatientByPid(Connection connection, long pid, long afterTid,
+                                                                      int limit) {
+        PreparedStatement preparedStatement = null;
+        try {
+            final String SQL = "SELECT * FROM treatment WHERE pid = ? AND tid > ? ORDER BY tid LIMIT ?";
+            preparedStatement = this.prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, pid);
+            preparedStatement.setLong(2, afterTid);
+            preparedStatement.setInt(3, limit);
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Queries one page of the treatments of a given patient id (pid). The index on <code>treatment(pid)</code> keeps
+     * the rows of one patient ordered by tid, so every page is a direct seek into that index.
+     *
+     * @param pid Patient id to query the treatments referencing this id.
+     * @param afterTid Id of the last treatment of the previous page, 0 for the first page.
+     * @param limit Maximum number of treatments of the page.
+     * @return <code>ArrayList</code> with the treatments of the page, empty after the last page.
+     */
+    public List<Treatment> readTreatmentsByPid(long pid, long afterTid, int limit) throws SQLException {
+        DaoMetrics.Call call = this.readPageByPidMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadPageOfTreatmentsOfOnePatientByPid(connection, pid, afterTid, limit)
+                .executeQuery()) {
+            List<Treatment> list = getListFromResultSet(result);
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Generates a <code>PreparedStatement</code> to query all treatments in a given period of time, ordered by date
+     * and begin.
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param from First day of the period.
+     * @param to Last day of the period.
+     * @return <code>PreparedStatement</code> to query the treatments of the period.
+     */
+    private PreparedStatement getReadTreatmentsBetweenStatement(Connection connection, LocalDate from, LocalDate to) {
+        PreparedStatement preparedStatement = null;
+        try {
+            final String SQL = "SELECT * FROM treatment WHERE treatment_date BETWEEN ? AND ? " +
+                    "ORDER BY treatment_date, begin";
+            preparedStatement = this.prepareStatement(connection, SQL);
+            preparedStatement.setLong(1, from.toEpochDay());
+            preparedStatement.setLong(2, to.toEpochDay());
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Queries all treatments in a given period of time. Dates are stored as epoch days, so the period is a range of
+     * integers on the index <code>treatment(treatment_date, begin)</code>.
+     *
+     * @param from First day of the period.
+     * @param to Last day of the period.
+     * @return <code>ArrayList</code> with the treatments of the period ordered by date and begin.
+     */
+    public List<Treatment> readTreatmentsBetween(LocalDate from, LocalDate to) throws SQLException {
+        DaoMetrics.Call call = this.readBetweenMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadTreatmentsBetweenStatement(connection, from, to).executeQuery()) {
+            List<Treatment> list = getListFromResultSet(result);
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Generates a <code>PreparedStatement</code> to query one page of treatments together with the name and care level
+     * of their patients, ordered by the treatment id (tid). Only the given filters are added to the statement.
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param pid Patient id of the treatments or 0 for the treatments of all patients.
+     * @param from First day of the treatments or <code>null</code>.
+     * @param to Last day of the treatments or <code>null</code>.
+     * @param afterTid Id of the last treatment of the previous page, 0 for the first page.
+     * @param limit Maximum number of treatments of the page, a negative limit reads all remaining treatments.
+     * @return <code>PreparedStatement</code> to query the page.
+     */
+    private PreparedStatement getReadOverviewsStatement(Connection connection, long pid, LocalDate from, LocalDate to,
+                                                        long afterTid, int limit) {
+        PreparedStatement preparedStatement = null;
+        try {
+            StringBuilder SQL = new StringBuilder(OVERVIEW_SQL).append(" WHERE t.tid > ?");
+            if (pid > 0) {
+                SQL.append(" AND t.pid = ?");
+            }
+            if (from != null) {
+                SQL.append(" AND t.treatment_date >= ?");
+            }
+            if (to != null) {
+                SQL.append(" AND t.treatment_date <= ?");
+            }
+            SQL.append(" ORDER BY t.tid LIMIT ?");
+            preparedStatement = this.prepareStatement(connection, SQL.toString());
+            int index = 1;
+            preparedStatement.setLong(index++, afterTid);
+            if (pid > 0) {
+                preparedStatement.setLong(index++, pid);
+            }
+            if (from != null) {
+                preparedStatement.setLong(index++, from.toEpochDay());
+            }
+            if (to != null) {
+                preparedStatement.setLong(index++, to.toEpochDay());
+            }
+            preparedStatement.setInt(index, limit);
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Queries one page of treatments together with the name and care level of their patients in one statement.
+     *
+     * @param pid Patient id of the treatments or 0 for the treatments of all patients.
+     * @param from First day of the treatments or <code>null</code>.
+     * @param to Last day of the treatments or <code>null</code>.
+     * @param afterTid Id of the last treatment of the previous page, 0 for the first page.
+     * @param limit Maximum number of treatments of the page, a negative limit reads all remaining treatments.
+     * @return <code>ArrayList</code> with the treatments of the page, empty after the last page.
+     */
+    public List<TreatmentOverview> readOverviews(long pid, LocalDate from, LocalDate to, long afterTid, int limit)
+            throws SQLException {
+        DaoMetrics.Call call = this.readOverviewsMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadOverviewsStatement(connection, pid, from, to, afterTid, limit).executeQuery()) {
+            List<TreatmentOverview> list = getOverviewListFromResultSet(result);
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Generates a <code>PreparedStatement</code> to query the treatments with the given ids together with the name and
+     * care level of their patients. The ids are bound as one JSON array, so the statement is the same for any number
+     * of ids: it takes one entry of the statement cache and is not limited by the number of parameters of SQLite.
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param tids Ids of the treatments.
+     * @return <code>PreparedStatement</code> to query the treatments.
+     */
+    private PreparedStatement getReadOverviewsByTidsStatement(Connection connection, Collection<Long> tids) {
+        final String SQL = OVERVIEW_SQL + " WHERE t.tid IN (SELECT value FROM json_each(?)) ORDER BY t.tid";
+        PreparedStatement preparedStatement = null;
+        try {
+            StringJoiner ids = new StringJoiner(",", "[", "]");
+            for (long tid : tids) {
+                ids.add(Long.toString(tid));
+            }
+            preparedStatement = this.prepareStatement(connection, SQL);
+            preparedStatement.setString(1, ids.toString());
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Queries the treatments with the given ids together with the name and care level of their patients in one
+     * statement. Ids of treatments, which do not exist, are skipped.
+     *
+     * @param tids Ids of the treatments.
+     * @return <code>ArrayList</code> with the found treatments ordered by their id.
+     */
+    public List<TreatmentOverview> readOverviewsByTids(Collection<Long> tids) throws SQLException {
+        DaoMetrics.Call call = this.readOverviewsByTidsMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getReadOverviewsByTidsStatement(connection, tids).executeQuery()) {
+            List<TreatmentOverview> list = getOverviewListFromResultSet(result);
+            call.finish(list.size());
+            return list;
+        } finally {
+            this.connectionPool.release(connection);
+        }
+    }
+
+    /**
+     * Converts the text of a search field to an FTS5 query. Every word of the text has to occur, the last word may
+     * also be the beginning of a word, so results appear while the user is typing. The words are quoted, so characters
+     * with a special meaning in FTS5 queries are searched as normal text.
+     *
+     * @param text Words to search.
+     * @return FTS5 query or <code>null</code>, if the text contains no words.
+     */
+    static String toMatchQuery(String text) {
+        StringJoiner query = new StringJoiner(" ");
+        for (String word : text.trim().split("\\s+")) {
+            if (!word.isEmpty()) {
+                query.add("\"" + word.replace("\"", "\"\"") + "\"");
+            }
+        }
+        return query.length() == 0 ? null : query + "*";
+    }
+
+    /**
+     * Generates a <code>PreparedStatement</code> to search the descriptions and remarks of all treatments.
+     *
+     * @param connection Connection acquired from the pool for the current operation.
+     * @param matchQuery FTS5 query.
+     * @param pid Patient id of the treatments or 0 for the treatments of all patients.
+     * @param limit Maximum number of results.
+     * @return <code>PreparedStatement</code> to search the treatments.
+     */
+    private PreparedStatement getSearchStatement(Connection connection, String matchQuery, long pid, int limit) {
+        PreparedStatement preparedStatement = null;
+        try {
+            final String SQL = "SELECT t.tid, t.pid, t.treatment_date, t.begin, t.end, t.description, t.remark, " +
+                    "p.firstname, p.surname, p.carelevel, " +
+                    "snippet(treatment_fts, -1, '" + SNIPPET_MARK_BEGIN + "', '" + SNIPPET_MARK_END + "', '…', 12) " +
+                    "FROM treatment_fts " +
+                    "JOIN treatment t ON t.tid = treatment_fts.rowid " +
+                    "JOIN patient p ON p.pid = t.pid " +
+                    "WHERE treatment_fts MATCH ? AND (? = 0 OR t.pid = ?) ORDER BY treatment_fts.rank LIMIT ?";
+            preparedStatement = this.prepareStatement(connection, SQL);
+            preparedStatement.setString(1, matchQuery);
+            preparedStatement.setLong(2, pid);
+            preparedStatement.setLong(3, pid);
+            preparedStatement.setInt(4, limit);
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Searches the words of the given text in the descriptions and remarks of all treatments. Every word has to occur,
+     * the last one may also be the beginning of a word. Upper and lower case as well as accents and umlauts are
+     * ignored. The results are ranked by relevance and contain an excerpt, in which the found words are enclosed in
+     * <code>SNIPPET_MARK_BEGIN</code> and <code>SNIPPET_MARK_END</code>.
+     *
+     * @param text Words to search.
+     * @param limit Maximum number of results.
+     * @return <code>ArrayList</code> with the found treatments, the most relevant first.
+     */
+    public List<TreatmentSearchHit> search(String text, int limit) throws SQLException {
+        return search(text, 0, limit);
+    }
+
+    /**
+     * Searches the words of the given text in the descriptions and remarks of the treatments of one patient, like
+     * <code>search(text, limit)</code>.
+     *
+     * @param text Words to search.
+     * @param pid Patient id of the treatments or 0 for the treatments of all patients.
+     * @param limit Maximum number of results.
+     * @return <code>ArrayList</code> with the found treatments, the most relevant first.
+     */
+    public List<TreatmentSearchHit> search(String text, long pid, int limit) throws SQLException {
+        String matchQuery = toMatchQuery(text);
+        ArrayList<TreatmentSearchHit> list = new ArrayList<>();
+        if (matchQuery == null) {
+            return list;
+        }
+        DaoMetrics.Call call = this.searchMetrics.start();
+        Connection connection = this.connectionPool.acquireReader();
+        try (ResultSet result = getSearchStatement(connection, matchQuery, pid, limit).executeQuery()) {
+            while (result.next()) {
+                LocalDate date = LocalDate.ofEpochDay(result.getLong(3));
+                LocalTime begin = DateConverter.convertMinutesToLocalTime(result.getInt(4));
+                LocalTime end = DateConverter.convertMinutesToLocalTime(result.getInt(5));
+                list.add(new TreatmentSearchHit(result.getLong(1), result.getLong(2), date, begin, end,
+                        result.getString(6), result.getString(7), result.getString(8), result.getString(9),
+                        result.getString(10), result.getString(11)));
+            }
+            call.finish(list.size());
+        } finally {
+            this.connectionPool.release(connection);
+        }
+        return list;
+    }
+
+    /**
+     * Maps a <code>ResultSet</code> of the overview query to an <code>ArrayList</code> with objects of class
+     * <code>TreatmentOverview</code>.
+     *
+     * @param result ResultSet with the columns of <code>OVERVIEW_SQL</code>.
+     * @return <code>ArrayList</code> with objects of class <code>TreatmentOverview</code> of all rows.
+     */
+    private ArrayList<TreatmentOverview> getOverviewListFromResultSet(ResultSet result) throws SQLException {
+        ArrayList<TreatmentOverview> list = new ArrayList<>();
+        while (result.next()) {
+            LocalDate date = LocalDate.ofEpochDay(result.getLong(3));
+            LocalTime begin = DateConverter.convertMinutesToLocalTime(result.getInt(4));
+            LocalTime end = DateConverter.convertMinutesToLocalTime(result.getInt(5));
+            list.add(new TreatmentOverview(result.getLong(1), result.getLong(2), date, begin, end,
+                    result.getString(6), result.getString(7), result.getString(8), result.getString(9),
+                    result.getString(10)));
+        }
+        return list;
     }
 
     /**
      * Generates a <code>PreparedStatement</code> to update the given treatment, identified
      * by the id of the treatment (tid).
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param treatment Treatment object to update.
      * @return <code>PreparedStatement</code> to update the given treatment.
      */
     @Override
-    protected PreparedStatement getUpdateStatement(Treatment treatment) {
+    protected PreparedStatement getUpdateStatement(Connection connection, Treatment treatment) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL =
@@ -173,11 +555,11 @@ public class TreatmentDao extends DaoImp<Treatment> {
                             "description = ?, " +
                             "remark = ? " +
                             "WHERE tid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setLong(1, treatment.getPid());
-            preparedStatement.setString(2, treatment.getDate());
-            preparedStatement.setString(3, treatment.getBegin());
-            preparedStatement.setString(4, treatment.getEnd());
+            preparedStatement.setLong(2, treatment.getLocalDate().toEpochDay());
+            preparedStatement.setInt(3, DateConverter.convertLocalTimeToMinutes(treatment.getLocalBegin()));
+            preparedStatement.setInt(4, DateConverter.convertLocalTimeToMinutes(treatment.getLocalEnd()));
             preparedStatement.setString(5, treatment.getDescription());
             preparedStatement.setString(6, treatment.getRemarks());
             preparedStatement.setLong(7, treatment.getTid());
@@ -190,16 +572,17 @@ public class TreatmentDao extends DaoImp<Treatment> {
     /**
      * Generates a <code>PreparedStatement</code> to delete a treatment with the given id.
      *
+     * @param connection Connection acquired from the pool for the current operation.
      * @param tid Id of the Treatment to delete.
      * @return <code>PreparedStatement</code> to delete treatment with the given id.
      */
     @Override
-    protected PreparedStatement getDeleteStatement(long tid) {
+    protected PreparedStatement getDeleteStatement(Connection connection, long tid) {
         PreparedStatement preparedStatement = null;
         try {
             final String SQL =
                     "DELETE FROM treatment WHERE tid = ?";
-            preparedStatement = this.connection.prepareStatement(SQL);
+            preparedStatement = this.prepareStatement(connection, SQL);
             preparedStatement.setLong(1, tid);
         } catch (SQLException exception) {
             exception.printStackTrace();
@@ -0,0 +1,39 @@
+package de.hitec.nhplus.model;
+
+/**
+ * Sum of the care minutes of a group of treatments, for example of one month, one patient or one care level.
+ */
+public class CareMinutes {
+    private final String group;
+    private final long treatmentCount;
+    private final long minutes;
+
+    /**
+     * Constructor to initiate an object of class <code>CareMinutes</code> with the given parameter.
+     *
+     * @param group Name of the group, for example the month in format "yyyy-MM", the name of a patient or a care level.
+     * @param treatmentCount Number of treatments of the group.
+     * @param minutes Sum of the durations of the treatments in minutes.
+     */
+    public CareMinutes(String group, long treatmentCount, long minutes) {
+        this.group = group;
+        this.treatmentCount = treatmentCount;
+        this.minutes = minutes;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public long getTreatmentCount() {
+        return treatmentCount;
+    }
+
+    public long getMinutes() {
+        return minutes;
+    }
+
+    public String toString() {
+        return this.group + ": " + this.minutes + " Minuten in " + this.treatmentCount + " Behandlungen";
+    }
+}
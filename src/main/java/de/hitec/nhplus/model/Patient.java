@@ -12,7 +12,7 @@ import java.util.List;
  * Patients live in a NURSING home and are treated by nurses.
  */
 public class Patient extends Person {
-    private SimpleLongProperty pid;
+    private final SimpleLongProperty pid;
     private final SimpleStringProperty dateOfBirth;
     private final SimpleStringProperty careLevel;
     private final SimpleStringProperty roomNumber;
@@ -32,6 +32,7 @@ public class Patient extends Person {
      */
     public Patient(String firstName, String surname, LocalDate dateOfBirth, String careLevel, String roomNumber, String assets) {
         super(firstName, surname);
+        this.pid = new SimpleLongProperty();
         this.dateOfBirth = new SimpleStringProperty(DateConverter.convertLocalDateToString(dateOfBirth));
         this.careLevel = new SimpleStringProperty(careLevel);
         this.roomNumber = new SimpleStringProperty(roomNumber);
@@ -67,6 +68,15 @@ public class Patient extends Person {
         return pid;
     }
 
+    /**
+     * Stores the patient id (pid), which the database generated when persisting the patient.
+     *
+     * @param pid Patient id.
+     */
+    public void setPid(long pid) {
+        this.pid.set(pid);
+    }
+
     public String getDateOfBirth() {
         return dateOfBirth.get();
     }
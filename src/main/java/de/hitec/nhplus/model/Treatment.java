@@ -62,6 +62,15 @@ public class Treatment {
         return tid;
     }
 
+    /**
+     * Stores the treatment id (tid), which the database generated when persisting the treatment.
+     *
+     * @param tid Treatment id.
+     */
+    public void setTid(long tid) {
+        this.tid = tid;
+    }
+
     public long getPid() {
         return this.pid;
     }
@@ -78,6 +87,18 @@ public class Treatment {
         return end.toString();
     }
 
+    public LocalDate getLocalDate() {
+        return date;
+    }
+
+    public LocalTime getLocalBegin() {
+        return begin;
+    }
+
+    public LocalTime getLocalEnd() {
+        return end;
+    }
+
     public void setDate(String date) {
         this.date = DateConverter.convertStringToLocalDate(date);
     }
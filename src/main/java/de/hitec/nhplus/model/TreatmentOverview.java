@@ -0,0 +1,71 @@
+package de.hitec.nhplus.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Treatment together with the name and the care level of the treated patient. Objects of this class are read by one
+ * query, which joins the tables <code>treatment</code> and <code>patient</code>, so lists of treatments can show the
+ * patient without reading each patient separately.
+ */
+public class TreatmentOverview extends Treatment {
+    private final String patientFirstName;
+    private final String patientSurname;
+    private final String patientCareLevel;
+
+    /**
+     * Constructor to initiate an object of class <code>TreatmentOverview</code> with the given parameter.
+     *
+     * @param tid Id of the treatment.
+     * @param pid Id of the treated patient.
+     * @param date Date of the Treatment.
+     * @param begin Time of the start of the treatment.
+     * @param end Time of the end of the treatment.
+     * @param description Description of the treatment.
+     * @param remarks Remarks to the treatment.
+     * @param patientFirstName First name of the treated patient.
+     * @param patientSurname Surname of the treated patient.
+     * @param patientCareLevel Care level of the treated patient.
+     */
+    public TreatmentOverview(long tid, long pid, LocalDate date, LocalTime begin, LocalTime end, String description,
+                             String remarks, String patientFirstName, String patientSurname, String patientCareLevel) {
+        super(tid, pid, date, begin, end, description, remarks);
+        this.patientFirstName = patientFirstName;
+        this.patientSurname = patientSurname;
+        this.patientCareLevel = patientCareLevel;
+    }
+
+    /**
+     * Constructor to initiate an object of class <code>TreatmentOverview</code> of a persisted treatment and its
+     * patient.
+     *
+     * @param treatment Persisted treatment.
+     * @param patient Patient of the treatment.
+     */
+    public TreatmentOverview(Treatment treatment, Patient patient) {
+        this(treatment.getTid(), treatment.getPid(), treatment.getLocalDate(), treatment.getLocalBegin(),
+                treatment.getLocalEnd(), treatment.getDescription(), treatment.getRemarks(), patient.getFirstName(),
+                patient.getSurname(), patient.getCareLevel());
+    }
+
+    public String getPatientFirstName() {
+        return patientFirstName;
+    }
+
+    public String getPatientSurname() {
+        return patientSurname;
+    }
+
+    public String getPatientCareLevel() {
+        return patientCareLevel;
+    }
+
+    /**
+     * Returns the name of the patient in the format, which the views use.
+     *
+     * @return Surname and first name of the patient, separated by a comma.
+     */
+    public String getPatientName() {
+        return patientSurname + ", " + patientFirstName;
+    }
+}
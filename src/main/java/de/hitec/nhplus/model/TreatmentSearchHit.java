@@ -0,0 +1,38 @@
+package de.hitec.nhplus.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Treatment found by the full-text search, together with an excerpt of its text, in which the found words are
+ * highlighted.
+ */
+public class TreatmentSearchHit extends TreatmentOverview {
+    private final String snippet;
+
+    /**
+     * Constructor to initiate an object of class <code>TreatmentSearchHit</code> with the given parameter.
+     *
+     * @param tid Id of the treatment.
+     * @param pid Id of the treated patient.
+     * @param date Date of the Treatment.
+     * @param begin Time of the start of the treatment.
+     * @param end Time of the end of the treatment.
+     * @param description Description of the treatment.
+     * @param remarks Remarks to the treatment.
+     * @param patientFirstName First name of the treated patient.
+     * @param patientSurname Surname of the treated patient.
+     * @param patientCareLevel Care level of the treated patient.
+     * @param snippet Excerpt of the description or the remarks with the highlighted words.
+     */
+    public TreatmentSearchHit(long tid, long pid, LocalDate date, LocalTime begin, LocalTime end, String description,
+                              String remarks, String patientFirstName, String patientSurname,
+                              String patientCareLevel, String snippet) {
+        super(tid, pid, date, begin, end, description, remarks, patientFirstName, patientSurname, patientCareLevel);
+        this.snippet = snippet;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+}
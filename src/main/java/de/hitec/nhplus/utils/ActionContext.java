@@ -0,0 +1,48 @@
+package de.hitec.nhplus.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Id of the user action, on whose behalf the current thread works. The controllers set it while handling an action,
+ * the asynchronous DAOs pass it on to their virtual threads, so the flight recorder events of the database calls can
+ * be assigned to the action, which caused them.
+ */
+public class ActionContext {
+
+    private static final AtomicLong LAST_ID = new AtomicLong();
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private ActionContext() {
+    }
+
+    /**
+     * @return A new action id, greater than 0.
+     */
+    public static long newId() {
+        return LAST_ID.incrementAndGet();
+    }
+
+    /**
+     * @return Id of the current action of this thread, 0 if there is none.
+     */
+    public static long current() {
+        Long id = CURRENT.get();
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Makes the given action the current action of this thread.
+     *
+     * @param id Id of the action, 0 for none.
+     * @return Id of the previous action, which has to be restored afterwards.
+     */
+    public static long set(long id) {
+        long previous = current();
+        if (id == 0) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(id);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,265 @@
+package de.hitec.nhplus.utils;
+
+import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.datastorage.TreatmentDao;
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic patients and treatments for load tests and benchmarks. The data is derived from a seed only:
+ * the same seed and parameters always give the same rows in the same order, on every machine. Therefore the history
+ * ends at a fixed date instead of today, and all distributions are computed with <code>StrictMath</code>.
+ * <p>
+ * The distributions follow a German nursing home: most residents have care level 3 or 4, are between 65 and 100
+ * years old and share rooms on a few floors. Each treatment type has its own time of day and duration, most remarks
+ * are one or two sentences long, a few are much longer. The treatments are generated day by day, so their ids grow
+ * with their date like in a real database.
+ */
+public class DataGenerator {
+
+    /**
+     * Last day of the generated history.
+     */
+    public static final LocalDate END_DATE = LocalDate.of(2024, 12, 31);
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    private static final String[] FIRST_NAMES = {"Anna", "Maria", "Elisabeth", "Ursula", "Gertrud", "Helga", "Erika",
+            "Renate", "Ingrid", "Hildegard", "Margarete", "Irmgard", "Christa", "Gisela", "Inge", "Waltraud", "Hans",
+            "Karl", "Heinz", "Werner", "Günter", "Walter", "Gerhard", "Horst", "Helmut", "Kurt", "Dieter", "Manfred",
+            "Klaus", "Rolf", "Ahmet", "Mehmet", "Fatma", "Ayşe", "Stanisław", "Zofia", "Dragan", "Milica"};
+    private static final String[] SURNAMES = {"Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer",
+            "Wagner", "Becker", "Schulz", "Hoffmann", "Schäfer", "Koch", "Bauer", "Richter", "Klein", "Wolf",
+            "Schröder", "Neumann", "Schwarz", "Zimmermann", "Braun", "Krüger", "Hofmann", "Hartmann", "Lange",
+            "Schmitt", "Werner", "Krause", "Lehmann", "Köhler", "Yılmaz", "Kaya", "Nowak", "Kowalski", "Jovanović"};
+    private static final String[] CARE_LEVELS = {"1", "2", "3", "4", "5"};
+    private static final double[] CARE_LEVEL_WEIGHTS = {0.02, 0.18, 0.35, 0.30, 0.15};
+    private static final String[] ASSETS = {"arm", "normal", "vermögend", "sehr vermögend"};
+    private static final double[] ASSETS_WEIGHTS = {0.25, 0.55, 0.15, 0.05};
+
+    private static final TreatmentType[] TREATMENT_TYPES = {
+            new TreatmentType("Waschen", 0.22, 6 * 60 + 30, 10 * 60, 15, 45,
+                    "Patient mit Waschlappen gewaschen und frisch angezogen.", "Waschen per Dusche auf einem Stuhl.",
+                    "Haut an Rücken und Gesäß gerötet, eingecremt.", "Patient gewendet.",
+                    "Patient wirkte heute müde und wenig kooperativ."),
+            new TreatmentType("Essen anreichen", 0.18, 7 * 60 + 30, 18 * 60 + 30, 20, 40,
+                    "Mittagessen angereicht, Patient hat gut gegessen.", "Nur die Hälfte gegessen.",
+                    "Trinkmenge heute zu gering, zum Trinken angehalten.", "Schluckbeschwerden beobachtet.",
+                    "Patient lehnt das Abendessen ab."),
+            new TreatmentType("Medikamentengabe", 0.20, 7 * 60, 21 * 60, 5, 15,
+                    "Medikamente nach Plan gegeben.", "Gabe von Iberogast.", "Blutdruck gemessen, im Normbereich.",
+                    "Patient hat die Tabletten zunächst verweigert.", "Blutzucker kontrolliert, Insulin gespritzt."),
+            new TreatmentType("Toilettengang", 0.12, 6 * 60, 22 * 60, 10, 20,
+                    "Hilfe beim Toilettengang.", "Inkontinenzmaterial gewechselt.",
+                    "Patient klagt über Schmerzen beim Stuhlgang.", "Patient war nachts mehrfach auf der Toilette."),
+            new TreatmentType("Gespräch", 0.08, 9 * 60, 19 * 60, 30, 90,
+                    "Der Patient hat enorme Angstgefühle und glaubt, er sei überfallen worden.",
+                    "Patient irrt auf der Suche nach gestohlenen Wertsachen durch die Etage.",
+                    "Patient erzählt von seiner Tochter und ist heute lebhafter.",
+                    "Patient beruhigt sich erst nach längerem Gespräch.", "Angehörige waren zu Besuch."),
+            new TreatmentType("Spaziergang", 0.08, 14 * 60, 17 * 60, 30, 60,
+                    "Spaziergang im Park, Patient döst im Rollstuhl ein.", "Parkspaziergang bei gutem Wetter.",
+                    "Patient ist heute lebhafter und hat klare Momente.", "Spaziergang wegen Regen verkürzt."),
+            new TreatmentType("Physiotherapie", 0.06, 9 * 60, 16 * 60, 30, 45,
+                    "Übungen zur Stabilisation und Mobilisierung der Rückenmuskulatur.", "Gangtraining mit Rollator.",
+                    "Patient klagt über Schmerzen im Knie, Übungen abgebrochen.", "Gute Fortschritte beim Aufstehen."),
+            new TreatmentType("KG", 0.04, 9 * 60, 17 * 60, 30, 60,
+                    "Lymphdrainage.", "Massage der Extremitäten zur Verbesserung der Durchblutung.",
+                    "Atemübungen durchgeführt.", "Kontrakturprophylaxe an beiden Beinen."),
+            new TreatmentType("Verbandswechsel", 0.02, 8 * 60, 12 * 60, 15, 30,
+                    "Verband am Unterschenkel gewechselt, Wunde heilt gut.", "Wunde leicht gerötet, Arzt informiert.",
+                    "Dekubitus am Steiß versorgt.", "Wundrand trocken, keine Zeichen einer Infektion.")
+    };
+    private static final double[] TREATMENT_TYPE_WEIGHTS = new double[TREATMENT_TYPES.length];
+
+    static {
+        for (int i = 0; i < TREATMENT_TYPES.length; i++) {
+            TREATMENT_TYPE_WEIGHTS[i] = TREATMENT_TYPES[i].weight;
+        }
+    }
+
+    private final long seed;
+    private final int patientCount;
+    private final int years;
+    private final double treatmentsPerDay;
+
+    /**
+     * Kind of treatment with its time of day, its duration and the sentences its remarks are made of.
+     */
+    private static class TreatmentType {
+        private final String description;
+        private final double weight;
+        private final int earliestBegin;
+        private final int latestBegin;
+        private final int minDuration;
+        private final int maxDuration;
+        private final String[] sentences;
+
+        private TreatmentType(String description, double weight, int earliestBegin, int latestBegin, int minDuration,
+                              int maxDuration, String... sentences) {
+            this.description = description;
+            this.weight = weight;
+            this.earliestBegin = earliestBegin;
+            this.latestBegin = latestBegin;
+            this.minDuration = minDuration;
+            this.maxDuration = maxDuration;
+            this.sentences = sentences;
+        }
+    }
+
+    /**
+     * Constructor to initiate a generator with the given parameters.
+     *
+     * @param seed Seed of all random values.
+     * @param patientCount Number of patients.
+     * @param years Number of years of the history, which ends at {@link #END_DATE}.
+     * @param treatmentsPerDay Average number of treatments per patient and day.
+     */
+    public DataGenerator(long seed, int patientCount, int years, double treatmentsPerDay) {
+        if (patientCount < 1 || years < 1 || treatmentsPerDay < 0) {
+            throw new IllegalArgumentException("patientCount and years must be at least 1, treatmentsPerDay at least 0");
+        }
+        this.seed = seed;
+        this.patientCount = patientCount;
+        this.years = years;
+        this.treatmentsPerDay = treatmentsPerDay;
+    }
+
+    /**
+     * Generates the patients and their treatments and writes them in transactions of 10,000 rows. The database should
+     * be empty, so the patients get the ids 1 to <code>patientCount</code> on every run.
+     *
+     * @param patientDao DAO to write the patients.
+     * @param treatmentDao DAO to write the treatments.
+     * @return Number of generated treatments.
+     */
+    public long generate(PatientDao patientDao, TreatmentDao treatmentDao) throws SQLException {
+        SplittableRandom root = new SplittableRandom(this.seed);
+        // Separate streams, so a different number of treatments does not change the patients.
+        SplittableRandom patientRandom = root.split();
+        SplittableRandom treatmentRandom = root.split();
+
+        LocalDate startDate = END_DATE.minusYears(this.years).plusDays(1);
+        List<Patient> patients = new ArrayList<>(this.patientCount);
+        long[] admissionDays = new long[this.patientCount];
+        List<Patient> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < this.patientCount; i++) {
+            Patient patient = nextPatient(patientRandom);
+            // Most residents already live in the home when the history starts, the others move in later.
+            admissionDays[i] = patientRandom.nextDouble() < 0.6 ? startDate.toEpochDay()
+                    : patientRandom.nextLong(startDate.toEpochDay(), END_DATE.toEpochDay() + 1);
+            patients.add(patient);
+            chunk.add(patient);
+            if (chunk.size() == CHUNK_SIZE) {
+                patientDao.createAll(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            patientDao.createAll(chunk);
+        }
+
+        long treatmentCount = 0;
+        List<Treatment> treatments = new ArrayList<>(CHUNK_SIZE);
+        for (long day = startDate.toEpochDay(); day <= END_DATE.toEpochDay(); day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            for (int i = 0; i < patients.size(); i++) {
+                if (admissionDays[i] > day) {
+                    continue;
+                }
+                int count = nextPoisson(treatmentRandom, this.treatmentsPerDay);
+                for (int j = 0; j < count; j++) {
+                    treatments.add(nextTreatment(treatmentRandom, patients.get(i).getPid(), date));
+                    if (treatments.size() == CHUNK_SIZE) {
+                        treatmentDao.createAll(treatments);
+                        treatmentCount += treatments.size();
+                        treatments.clear();
+                    }
+                }
+            }
+        }
+        if (!treatments.isEmpty()) {
+            treatmentDao.createAll(treatments);
+            treatmentCount += treatments.size();
+        }
+        return treatmentCount;
+    }
+
+    private Patient nextPatient(SplittableRandom random) {
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String surname = SURNAMES[random.nextInt(SURNAMES.length)];
+        // Residents are between 65 and 100 years old, most of them around 84.
+        int age = (int) Math.max(65, Math.min(100, StrictMath.round(84 + 7 * nextGaussian(random))));
+        LocalDate dateOfBirth = END_DATE.minusYears(age).minusDays(random.nextInt(365));
+        String careLevel = CARE_LEVELS[nextWeightedIndex(random, CARE_LEVEL_WEIGHTS)];
+        // Rooms are numbered by floor and room, like "012" for room 12 on the ground floor.
+        String roomNumber = random.nextInt(4) + String.format("%02d", 1 + random.nextInt(30));
+        String assets = ASSETS[nextWeightedIndex(random, ASSETS_WEIGHTS)];
+        return new Patient(firstName, surname, dateOfBirth, careLevel, roomNumber, assets);
+    }
+
+    private static Treatment nextTreatment(SplittableRandom random, long pid, LocalDate date) {
+        TreatmentType type = TREATMENT_TYPES[nextWeightedIndex(random, TREATMENT_TYPE_WEIGHTS)];
+        int begin = roundToFiveMinutes(random.nextInt(type.earliestBegin, type.latestBegin + 1));
+        int duration = roundToFiveMinutes(random.nextInt(type.minDuration, type.maxDuration + 1));
+        int end = Math.min(begin + Math.max(5, duration), 23 * 60 + 55);
+        return new Treatment(pid, date, DateConverter.convertMinutesToLocalTime(begin),
+                DateConverter.convertMinutesToLocalTime(end), type.description, nextRemark(random, type));
+    }
+
+    /**
+     * Builds a remark of sentences of the given type. Half of the remarks have one sentence, every further sentence
+     * is half as likely as the previous one, up to eight sentences.
+     */
+    private static String nextRemark(SplittableRandom random, TreatmentType type) {
+        StringBuilder remark = new StringBuilder(type.sentences[random.nextInt(type.sentences.length)]);
+        for (int i = 1; i < 8 && random.nextBoolean(); i++) {
+            remark.append(' ').append(type.sentences[random.nextInt(type.sentences.length)]);
+        }
+        return remark.toString();
+    }
+
+    private static int roundToFiveMinutes(int minutes) {
+        return minutes / 5 * 5;
+    }
+
+    private static int nextWeightedIndex(SplittableRandom random, double[] weights) {
+        double value = random.nextDouble();
+        for (int i = 0; i < weights.length - 1; i++) {
+            value -= weights[i];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Returns a Poisson distributed number with the given mean by Knuth's method, which is fast for small means.
+     */
+    private static int nextPoisson(SplittableRandom random, double mean) {
+        double limit = StrictMath.exp(-mean);
+        int count = 0;
+        double product = random.nextDouble();
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    /**
+     * Returns a standard normal distributed number by the Box-Muller method. Unlike <code>nextGaussian()</code> of the
+     * random generators, <code>StrictMath</code> gives the same result on every machine.
+     */
+    private static double nextGaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        return StrictMath.sqrt(-2 * StrictMath.log(u)) * StrictMath.cos(2 * StrictMath.PI * random.nextDouble());
+    }
+}
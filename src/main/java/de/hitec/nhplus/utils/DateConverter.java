@@ -2,26 +2,113 @@ package de.hitec.nhplus.utils;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Converts dates and times between their string representation and <code>LocalDate</code> and
+ * <code>LocalTime</code>. The fixed formats <code>yyyy-MM-dd</code> and <code>HH:mm</code> are parsed and formatted
+ * by hand, because this happens for every keystroke in the input fields. Strings, which the fast path does not
+ * accept, are passed to a <code>DateTimeFormatter</code>, so both ways accept and reject exactly the same input.
+ */
 public class DateConverter {
 
     private static final String DATE_FORMAT = "yyyy-MM-dd";
     private static final String TIME_FORMAT = "HH:mm";
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(TIME_FORMAT);
+
     public static LocalDate convertStringToLocalDate(String date) {
-        return LocalDate.parse(date, DateTimeFormatter.ofPattern(DATE_FORMAT));
+        if (date.length() == 10 && date.charAt(4) == '-' && date.charAt(7) == '-') {
+            int year = parseDigits(date, 0, 4);
+            int month = parseDigits(date, 5, 2);
+            int day = parseDigits(date, 8, 2);
+            if (year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31) {
+                // Like the formatter in its default resolver style, a day after the end of a month is moved to the
+                // last day of that month.
+                int lengthOfMonth = Month.of(month).length(Year.isLeap(year));
+                return LocalDate.of(year, month, Math.min(day, lengthOfMonth));
+            }
+        }
+        return LocalDate.parse(date, DATE_FORMATTER);
     }
 
     public static LocalTime convertStringToLocalTime(String time) {
-        return LocalTime.parse(time, DateTimeFormatter.ofPattern(TIME_FORMAT));
+        if (time.length() == 5 && time.charAt(2) == ':') {
+            int hour = parseDigits(time, 0, 2);
+            int minute = parseDigits(time, 3, 2);
+            if (hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59) {
+                return LocalTime.of(hour, minute);
+            }
+        }
+        return LocalTime.parse(time, TIME_FORMATTER);
     }
 
     public static String convertLocalDateToString(LocalDate date) {
-        return date.format(DateTimeFormatter.ofPattern(DATE_FORMAT));
+        int year = date.getYear();
+        if (year < 1 || year > 9999) {
+            return date.format(DATE_FORMATTER);
+        }
+        char[] text = new char[10];
+        writeDigits(text, 0, 4, year);
+        text[4] = '-';
+        writeDigits(text, 5, 2, date.getMonthValue());
+        text[7] = '-';
+        writeDigits(text, 8, 2, date.getDayOfMonth());
+        return new String(text);
     }
 
     public static String convertLocalTimeToString(LocalTime time) {
-        return time.format(DateTimeFormatter.ofPattern(TIME_FORMAT));
+        char[] text = new char[5];
+        writeDigits(text, 0, 2, time.getHour());
+        text[2] = ':';
+        writeDigits(text, 3, 2, time.getMinute());
+        return new String(text);
+    }
+
+    /**
+     * Converts a time to the number of minutes since midnight, which is the format times are stored in the database.
+     *
+     * @param time Time to convert. Seconds are dropped.
+     * @return Minutes since midnight, between 0 and 1439.
+     */
+    public static int convertLocalTimeToMinutes(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Converts the number of minutes since midnight, as stored in the database, to a time.
+     *
+     * @param minutes Minutes since midnight, between 0 and 1439.
+     * @return Time of the given minute of the day.
+     */
+    public static LocalTime convertMinutesToLocalTime(int minutes) {
+        return LocalTime.of(minutes / 60, minutes % 60);
+    }
+
+    /**
+     * Reads a fixed number of ASCII digits.
+     *
+     * @return The value of the digits or -1, if one of the characters is not an ASCII digit.
+     */
+    private static int parseDigits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void writeDigits(char[] text, int start, int count, int value) {
+        for (int i = start + count - 1; i >= start; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
     }
 }
@@ -0,0 +1,162 @@
+package de.hitec.nhplus.utils;
+
+import de.hitec.nhplus.model.Patient;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory prefix index over the surname, first name and room number of patients. All words are normalized to lower
+ * case without accents, umlauts are indexed both as simple vowel and in their spelling with "e", so "Müller",
+ * "Muller" and "Mueller" find the same patient. The words are kept sorted, so all words starting with a prefix are
+ * found by one range of the sorted map instead of comparing every patient.
+ * <p>
+ * The index is not thread-safe. It may be built on any thread, but afterwards it has to be used by one thread only.
+ */
+public class PatientSearchIndex {
+
+    private final NavigableMap<String, Set<Long>> pidsByWord = new TreeMap<>();
+    private final Map<Long, List<String>> wordsByPid = new HashMap<>();
+
+    /**
+     * Constructor to initiate an index of the given patients.
+     *
+     * @param patients Patients to index.
+     */
+    public PatientSearchIndex(Collection<Patient> patients) {
+        for (Patient patient : patients) {
+            put(patient);
+        }
+    }
+
+    /**
+     * Adds the given patient to the index or replaces the indexed words of a patient with the same id.
+     *
+     * @param patient Patient to index.
+     */
+    public void put(Patient patient) {
+        remove(patient.getPid());
+        List<String> words = new ArrayList<>();
+        addWords(words, patient.getSurname());
+        addWords(words, patient.getFirstName());
+        addWords(words, patient.getRoomNumber());
+        for (String word : words) {
+            this.pidsByWord.computeIfAbsent(word, key -> new HashSet<>()).add(patient.getPid());
+        }
+        this.wordsByPid.put(patient.getPid(), words);
+    }
+
+    /**
+     * Removes the patient with the given id from the index.
+     *
+     * @param pid Id of the patient.
+     */
+    public void remove(long pid) {
+        List<String> words = this.wordsByPid.remove(pid);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Set<Long> pids = this.pidsByWord.get(word);
+            pids.remove(pid);
+            if (pids.isEmpty()) {
+                this.pidsByWord.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Searches all patients, which have a word starting with each word of the given text. For example "mül 12" finds
+     * the patients named Müller in room 12 and room 120.
+     *
+     * @param text Words to search.
+     * @return Ids of the found patients, all indexed patients, if the text contains no words.
+     */
+    public Set<Long> search(String text) {
+        List<String> prefixes = new ArrayList<>();
+        addWords(prefixes, text, false);
+        Set<Long> result = null;
+        for (String prefix : prefixes) {
+            Set<Long> matches = new HashSet<>();
+            for (Set<Long> pids : this.pidsByWord.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                if (result == null) {
+                    matches.addAll(pids);
+                } else {
+                    // Only patients found by all previous words can be found by all words.
+                    for (long pid : pids) {
+                        if (result.contains(pid)) {
+                            matches.add(pid);
+                        }
+                    }
+                }
+            }
+            result = matches;
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? new HashSet<>(this.wordsByPid.keySet()) : result;
+    }
+
+    public int size() {
+        return this.wordsByPid.size();
+    }
+
+    private static void addWords(List<String> words, String text) {
+        if (text == null) {
+            return;
+        }
+        addWords(words, text, false);
+        // The spelling with "e" is indexed as well, so "mueller" finds "Müller".
+        addWords(words, text, true);
+    }
+
+    /**
+     * Splits the given text into words, which are converted to lower case without accents. Only the characters
+     * outside of ASCII and the umlauts are passed to the <code>Normalizer</code>, so most names are normalized by a
+     * simple loop.
+     *
+     * @param words List, to which the new words are added.
+     * @param text Text to split.
+     * @param transcribeUmlauts Whether umlauts are written with "e" instead of the simple vowel.
+     */
+    private static void addWords(List<String> words, String text, boolean transcribeUmlauts) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (!Character.isLetterOrDigit(c)) {
+                if (!word.isEmpty()) {
+                    String normalized = word.toString();
+                    if (!words.contains(normalized)) {
+                        words.add(normalized);
+                    }
+                    word.setLength(0);
+                }
+            } else if (c < 128) {
+                word.append(c);
+            } else if (c == 'ä' || c == 'ö' || c == 'ü') {
+                word.append(c == 'ä' ? 'a' : c == 'ö' ? 'o' : 'u');
+                if (transcribeUmlauts) {
+                    word.append('e');
+                }
+            } else if (c == 'ß') {
+                word.append("ss");
+            } else {
+                String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                for (int j = 0; j < decomposed.length(); j++) {
+                    if (Character.getType(decomposed.charAt(j)) != Character.NON_SPACING_MARK) {
+                        word.append(decomposed.charAt(j));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package de.hitec.nhplus.utils;
 
 import de.hitec.nhplus.datastorage.ConnectionBuilder;
+import de.hitec.nhplus.datastorage.ConnectionPool;
 import de.hitec.nhplus.datastorage.DaoFactory;
 import de.hitec.nhplus.datastorage.PatientDao;
+import de.hitec.nhplus.datastorage.SchemaMigrator;
 import de.hitec.nhplus.datastorage.TreatmentDao;
 import de.hitec.nhplus.model.Patient;
 import de.hitec.nhplus.model.Treatment;
@@ -10,89 +12,107 @@ import de.hitec.nhplus.model.Treatment;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 import static de.hitec.nhplus.utils.DateConverter.convertStringToLocalDate;
 import static de.hitec.nhplus.utils.DateConverter.convertStringToLocalTime;
 
 /**
  * Call static class provides to static methods to set up and wipe the database. It uses the class ConnectionBuilder
- * and its path to build up the connection to the database. The class is executable. Executing the class will build
- * up a connection to the database and calls setUpDb() to wipe the database, build up a clean database and fill the
- * database with some test data.
+ * and its path to build up the connection pool of the database. The class is executable. Executing the class will
+ * build up a connection to the database and calls setUpDb() to wipe the database, build up a clean database and fill
+ * the database with some test data. To upgrade a database without losing data, NHPlus applies the pending migrations
+ * of {@link SchemaMigrator} on every start instead.
  */
 public class SetUpDB {
 
+    private static final String REBUILD_SUMMARIES = "--rebuild-summaries";
+    private static final String GENERATE = "--generate";
+    private static final long DEFAULT_SEED = 1;
+
     /**
-     * This method wipes the database by dropping the tables. Then the method calls DDL statements to build it up from
-     * scratch and DML statements to fill the database with hard coded test data.
+     * This method wipes the database by dropping the tables. Then the method applies all migrations of
+     * {@link SchemaMigrator} to build it up from scratch and DML statements to fill the database with hard coded test
+     * data.
      */
     public static void setUpDb() {
-        Connection connection = ConnectionBuilder.getConnection();
-        SetUpDB.wipeDb(connection);
-        SetUpDB.setUpTablePatient(connection);
-        SetUpDB.setUpTableTreatment(connection);
-        SetUpDB.setUpPatients();
-        SetUpDB.setUpTreatments();
+        if (SetUpDB.resetDb()) {
+            SetUpDB.setUpPatients();
+            SetUpDB.setUpTreatments();
+        }
     }
 
     /**
-     * This method wipes the database by dropping the tables.
+     * This method wipes the database, builds it up from scratch and fills it with synthetic data of
+     * {@link DataGenerator}. The same parameters always give the same data.
+     *
+     * @param seed Seed of all random values.
+     * @param patientCount Number of patients.
+     * @param years Number of years of the history.
+     * @param treatmentsPerDay Average number of treatments per patient and day.
      */
-    public static void wipeDb(Connection connection) {
-        try (Statement statement = connection.createStatement()) {
-            statement.execute("DROP TABLE patient");
-            statement.execute("DROP TABLE treatment");
+    public static void generateDb(long seed, int patientCount, int years, double treatmentsPerDay) {
+        DataGenerator generator = new DataGenerator(seed, patientCount, years, treatmentsPerDay);
+        if (!SetUpDB.resetDb()) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            DaoFactory factory = DaoFactory.getDaoFactory();
+            long treatmentCount = generator.generate(factory.createPatientDAO(), factory.createTreatmentDao());
+            System.out.printf("%d Patienten und %d Behandlungen in %d s erzeugt%n", patientCount, treatmentCount,
+                    (System.nanoTime() - start) / 1_000_000_000);
         } catch (SQLException exception) {
-            System.out.println(exception.getMessage());
+            exception.printStackTrace();
         }
     }
 
-    private static void setUpTablePatient(Connection connection) {
-        final String SQL = "CREATE TABLE IF NOT EXISTS patient (" +
-                "   pid INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "   firstname TEXT NOT NULL, " +
-                "   surname TEXT NOT NULL, " +
-                "   dateOfBirth TEXT NOT NULL, " +
-                "   carelevel TEXT NOT NULL, " +
-                "   roomnumber TEXT NOT NULL, " +
-                "   assets TEXt NOT NULL" +
-                ");";
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(SQL);
+    /**
+     * Wipes the database and applies all migrations.
+     *
+     * @return <code>true</code> if the database is ready for new data.
+     */
+    private static boolean resetDb() {
+        ConnectionPool connectionPool = ConnectionBuilder.getConnectionPool();
+        Connection connection = connectionPool.acquireWriter();
+        try {
+            SetUpDB.wipeDb(connection);
+            DaoFactory.getDaoFactory().getPatientCache().clear();
+            SchemaMigrator.migrate(connection);
+            return true;
         } catch (SQLException exception) {
-            System.out.println(exception.getMessage());
+            exception.printStackTrace();
+            return false;
+        } finally {
+            connectionPool.release(connection);
         }
     }
 
-    private static void setUpTableTreatment(Connection connection) {
-        final String SQL = "CREATE TABLE IF NOT EXISTS treatment (" +
-                "   tid INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "   pid INTEGER NOT NULL, " +
-                "   treatment_date TEXT NOT NULL, " +
-                "   begin TEXT NOT NULL, " +
-                "   end TEXT NOT NULL, " +
-                "   description TEXT NOT NULL, " +
-                "   remark TEXT NOT NULL," +
-                "   FOREIGN KEY (pid) REFERENCES patient (pid) ON DELETE CASCADE " +
-                ");";
-
+    /**
+     * This method wipes the database by dropping the tables.
+     */
+    public static void wipeDb(Connection connection) {
         try (Statement statement = connection.createStatement()) {
-            statement.execute(SQL);
+            statement.execute("DROP TABLE IF EXISTS treatment_fts");
+            statement.execute("DROP TABLE IF EXISTS care_minutes_monthly");
+            statement.execute("DROP TABLE IF EXISTS treatment");
+            statement.execute("DROP TABLE IF EXISTS patient");
+            statement.execute("DROP TABLE IF EXISTS schema_version");
         } catch (SQLException exception) {
             System.out.println(exception.getMessage());
         }
     }
 
-
     private static void setUpPatients() {
         try {
             PatientDao dao = DaoFactory.getDaoFactory().createPatientDAO();
-            dao.create(new Patient("Seppl", "Herberger", convertStringToLocalDate("1945-12-01"), "4", "202", "vermögend"));
-            dao.create(new Patient("Martina", "Gerdsen", convertStringToLocalDate("1954-08-12"), "5", "010", "arm"));
-            dao.create(new Patient("Gertrud", "Franzen", convertStringToLocalDate("1949-04-16"), "3", "002", "normal"));
-            dao.create(new Patient("Ahmet", "Yilmaz", convertStringToLocalDate("1941-02-22"), "3", "013", "normal"));
-            dao.create(new Patient("Hans", "Neumann", convertStringToLocalDate("1955-12-12"), "2", "001", "sehr vermögend"));
-            dao.create(new Patient("Elisabeth", "Müller", convertStringToLocalDate("1958-03-07"), "5", "110", "arm"));
+            dao.createAll(List.of(
+                    new Patient("Seppl", "Herberger", convertStringToLocalDate("1945-12-01"), "4", "202", "vermögend"),
+                    new Patient("Martina", "Gerdsen", convertStringToLocalDate("1954-08-12"), "5", "010", "arm"),
+                    new Patient("Gertrud", "Franzen", convertStringToLocalDate("1949-04-16"), "3", "002", "normal"),
+                    new Patient("Ahmet", "Yilmaz", convertStringToLocalDate("1941-02-22"), "3", "013", "normal"),
+                    new Patient("Hans", "Neumann", convertStringToLocalDate("1955-12-12"), "2", "001", "sehr vermögend"),
+                    new Patient("Elisabeth", "Müller", convertStringToLocalDate("1958-03-07"), "5", "110", "arm")));
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
@@ -101,22 +121,55 @@ public class SetUpDB {
     private static void setUpTreatments() {
         try {
             TreatmentDao dao = DaoFactory.getDaoFactory().createTreatmentDao();
-            dao.create(new Treatment(1, 1, convertStringToLocalDate("2023-06-03"), convertStringToLocalTime("11:00"), convertStringToLocalTime("15:00"), "Gespräch", "Der Patient hat enorme Angstgefühle und glaubt, er sei überfallen worden. Ihm seien alle Wertsachen gestohlen worden.\nPatient beruhigt sich erst, als alle Wertsachen im Zimmer gefunden worden sind."));
-            dao.create(new Treatment(2, 1, convertStringToLocalDate("2023-06-05"), convertStringToLocalTime("11:00"), convertStringToLocalTime("12:30"), "Gespräch", "Patient irrt auf der Suche nach gestohlenen Wertsachen durch die Etage und bezichtigt andere Bewohner des Diebstahls.\nPatient wird in seinen Raum zurückbegleitet und erhält Beruhigungsmittel."));
-            dao.create(new Treatment(3, 2, convertStringToLocalDate("2023-06-04"), convertStringToLocalTime("07:30"), convertStringToLocalTime("08:00"), "Waschen", "Patient mit Waschlappen gewaschen und frisch angezogen. Patient gewendet."));
-            dao.create(new Treatment(4, 1, convertStringToLocalDate("2023-06-06"), convertStringToLocalTime("15:10"), convertStringToLocalTime("16:00"), "Spaziergang", "Spaziergang im Park, Patient döst  im Rollstuhl ein"));
-            dao.create(new Treatment(8, 1, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("16:00"), "Spaziergang", "Parkspaziergang; Patient ist heute lebhafter und hat klare Momente; erzählt von seiner Tochter"));
-            dao.create(new Treatment(9, 2, convertStringToLocalDate("2023-06-07"), convertStringToLocalTime("11:00"), convertStringToLocalTime("11:30"), "Waschen", "Waschen per Dusche auf einem Stuhl; Patientin gewendet;"));
-            dao.create(new Treatment(12, 5, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("15:30"), "Physiotherapie", "Übungen zur Stabilisation und Mobilisierung der Rückenmuskulatur"));
-            dao.create(new Treatment(14, 4, convertStringToLocalDate("2023-08-24"), convertStringToLocalTime("09:30"), convertStringToLocalTime("10:15"), "KG", "Lympfdrainage"));
-            dao.create(new Treatment(16, 6, convertStringToLocalDate("2023-08-31"), convertStringToLocalTime("13:30"), convertStringToLocalTime("13:45"), "Toilettengang", "Hilfe beim Toilettengang; Patientin klagt über Schmerzen beim Stuhlgang. Gabe von Iberogast"));
-            dao.create(new Treatment(17, 6, convertStringToLocalDate("2023-09-01"), convertStringToLocalTime("16:00"), convertStringToLocalTime("17:00"), "KG", "Massage der Extremitäten zur Verbesserung der Durchblutung"));
+            dao.createAll(List.of(
+                    new Treatment(1, 1, convertStringToLocalDate("2023-06-03"), convertStringToLocalTime("11:00"), convertStringToLocalTime("15:00"), "Gespräch", "Der Patient hat enorme Angstgefühle und glaubt, er sei überfallen worden. Ihm seien alle Wertsachen gestohlen worden.\nPatient beruhigt sich erst, als alle Wertsachen im Zimmer gefunden worden sind."),
+                    new Treatment(2, 1, convertStringToLocalDate("2023-06-05"), convertStringToLocalTime("11:00"), convertStringToLocalTime("12:30"), "Gespräch", "Patient irrt auf der Suche nach gestohlenen Wertsachen durch die Etage und bezichtigt andere Bewohner des Diebstahls.\nPatient wird in seinen Raum zurückbegleitet und erhält Beruhigungsmittel."),
+                    new Treatment(3, 2, convertStringToLocalDate("2023-06-04"), convertStringToLocalTime("07:30"), convertStringToLocalTime("08:00"), "Waschen", "Patient mit Waschlappen gewaschen und frisch angezogen. Patient gewendet."),
+                    new Treatment(4, 1, convertStringToLocalDate("2023-06-06"), convertStringToLocalTime("15:10"), convertStringToLocalTime("16:00"), "Spaziergang", "Spaziergang im Park, Patient döst  im Rollstuhl ein"),
+                    new Treatment(8, 1, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("16:00"), "Spaziergang", "Parkspaziergang; Patient ist heute lebhafter und hat klare Momente; erzählt von seiner Tochter"),
+                    new Treatment(9, 2, convertStringToLocalDate("2023-06-07"), convertStringToLocalTime("11:00"), convertStringToLocalTime("11:30"), "Waschen", "Waschen per Dusche auf einem Stuhl; Patientin gewendet;"),
+                    new Treatment(12, 5, convertStringToLocalDate("2023-06-08"), convertStringToLocalTime("15:00"), convertStringToLocalTime("15:30"), "Physiotherapie", "Übungen zur Stabilisation und Mobilisierung der Rückenmuskulatur"),
+                    new Treatment(14, 4, convertStringToLocalDate("2023-08-24"), convertStringToLocalTime("09:30"), convertStringToLocalTime("10:15"), "KG", "Lympfdrainage"),
+                    new Treatment(16, 6, convertStringToLocalDate("2023-08-31"), convertStringToLocalTime("13:30"), convertStringToLocalTime("13:45"), "Toilettengang", "Hilfe beim Toilettengang; Patientin klagt über Schmerzen beim Stuhlgang. Gabe von Iberogast"),
+                    new Treatment(17, 6, convertStringToLocalDate("2023-09-01"), convertStringToLocalTime("16:00"), convertStringToLocalTime("17:00"), "KG", "Massage der Extremitäten zur Verbesserung der Durchblutung")));
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Rebuilds the care minutes per patient and month from all treatments, without changing other data.
+     */
+    public static void rebuildSummaries() {
+        try {
+            DaoFactory.getDaoFactory().createReportDao().rebuildCareMinutes();
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
     }
 
+    /**
+     * Sets up the database with test data. With the argument <code>--rebuild-summaries</code> the existing data is kept
+     * and only the care minutes are rebuilt. With the arguments
+     * <code>--generate &lt;patients&gt; &lt;years&gt; &lt;treatmentsPerDay&gt; [seed]</code> the database is filled
+     * with synthetic data instead of the hard coded test data.
+     *
+     * @param args Command line arguments.
+     */
     public static void main(String[] args) {
-        SetUpDB.setUpDb();
+        if (args.length > 0 && args[0].equals(REBUILD_SUMMARIES)) {
+            SetUpDB.rebuildSummaries();
+        } else if (args.length > 0 && args[0].equals(GENERATE)) {
+            if (args.length < 4) {
+                System.out.println("Aufruf: SetUpDB --generate <Patienten> <Jahre> <Behandlungen pro Tag> [Seed]");
+            } else {
+                long seed = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_SEED;
+                SetUpDB.generateDb(seed, Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        Double.parseDouble(args[3]));
+            }
+        } else {
+            SetUpDB.setUpDb();
+        }
+        ConnectionBuilder.closeConnectionPool();
     }
 }
@@ -4,6 +4,9 @@ module de.hitec.nhplus {
 
     requires org.controlsfx.controls;
     requires java.sql;
+    requires java.management;
+    requires org.slf4j;
+    requires jdk.jfr;
     requires org.xerial.sqlitejdbc;
 
     opens de.hitec.nhplus to javafx.fxml;
@@ -13,4 +16,5 @@ module de.hitec.nhplus {
     exports de.hitec.nhplus;
     exports de.hitec.nhplus.controller;
     exports de.hitec.nhplus.model;
+    exports de.hitec.nhplus.datastorage to java.management;
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks, that the triggers of <code>care_minutes_monthly</code> always leave the same sums as
+ * {@link ReportDao#rebuildCareMinutes()}, also for a treatment, whose end lies before its begin, because it goes on
+ * over midnight.
+ */
+class CareMinutesTriggerTest {
+
+    private TestDatabase database;
+    private TreatmentDao treatmentDao;
+    private ReportDao reportDao;
+    private Patient firstPatient;
+    private Patient secondPatient;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        this.database = new TestDatabase();
+        this.treatmentDao = new TreatmentDao(this.database.getConnectionPool());
+        this.reportDao = new ReportDao(this.database.getConnectionPool());
+        PatientDao patientDao = new PatientDao(this.database.getConnectionPool());
+        this.firstPatient = patientDao.create(
+                new Patient("Erika", "Mustermann", LocalDate.of(1940, 5, 1), "3", "12", "normal"));
+        this.secondPatient = patientDao.create(
+                new Patient("Max", "Mustermann", LocalDate.of(1938, 2, 7), "2", "13", "normal"));
+        createTreatment(this.firstPatient, LocalDate.of(2024, 1, 31), LocalTime.of(9, 0), LocalTime.of(9, 45));
+        createTreatment(this.secondPatient, LocalDate.of(2024, 2, 1), LocalTime.of(14, 0), LocalTime.of(15, 0));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        this.database.close();
+    }
+
+    private Treatment createTreatment(Patient patient, LocalDate date, LocalTime begin, LocalTime end)
+            throws SQLException {
+        return this.treatmentDao.create(new Treatment(patient.getPid(), date, begin, end, "Nachtwache", ""));
+    }
+
+    @Test
+    void overnightTreatmentIsSummedLikeTheRebuild() throws SQLException {
+        Treatment overnight = createTreatment(this.firstPatient, LocalDate.of(2024, 1, 31), LocalTime.of(22, 0),
+                LocalTime.of(6, 0));
+        assertTriggersMatchRebuild();
+
+        // Moves the treatment to the next month, so it leaves one row and enters another one.
+        overnight.setDate("2024-02-01");
+        this.treatmentDao.update(overnight);
+        assertTriggersMatchRebuild();
+
+        overnight.setBegin("23:30");
+        overnight.setEnd("00:15");
+        this.treatmentDao.update(overnight);
+        assertTriggersMatchRebuild();
+
+        execute("UPDATE treatment SET pid = " + this.secondPatient.getPid() + " WHERE tid = " + overnight.getTid());
+        assertTriggersMatchRebuild();
+
+        this.treatmentDao.deleteById(overnight.getTid());
+        assertTriggersMatchRebuild();
+    }
+
+    @Test
+    void rowsWithoutTreatmentsAreRemoved() throws SQLException {
+        Treatment overnight = createTreatment(this.firstPatient, LocalDate.of(2024, 3, 10), LocalTime.of(21, 0),
+                LocalTime.of(1, 0));
+        this.treatmentDao.deleteById(overnight.getTid());
+
+        assertEquals(List.of(), readSums().stream().filter(row -> row.get(1) == 202403L).toList());
+        assertTriggersMatchRebuild();
+    }
+
+    private void assertTriggersMatchRebuild() throws SQLException {
+        List<List<Long>> triggerSums = readSums();
+        this.reportDao.rebuildCareMinutes();
+        assertEquals(readSums(), triggerSums);
+    }
+
+    /**
+     * Reads all rows of <code>care_minutes_monthly</code> as lists of pid, month, number of treatments and minutes.
+     */
+    private List<List<Long>> readSums() throws SQLException {
+        List<List<Long>> rows = new ArrayList<>();
+        ConnectionPool connectionPool = this.database.getConnectionPool();
+        Connection connection = connectionPool.acquireReader();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT pid, month, treatment_count, minutes " +
+                     "FROM care_minutes_monthly ORDER BY pid, month")) {
+            while (result.next()) {
+                rows.add(List.of(result.getLong(1), result.getLong(2), result.getLong(3), result.getLong(4)));
+            }
+        } finally {
+            connectionPool.release(connection);
+        }
+        return rows;
+    }
+
+    private void execute(String sql) throws SQLException {
+        this.database.getConnectionPool().executeInTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sql);
+            }
+        });
+    }
+}
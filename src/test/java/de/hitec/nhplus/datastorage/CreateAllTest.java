@@ -0,0 +1,118 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks, that <code>createAll()</code> writes the ids, which the database generated, back into the right objects,
+ * also across several batches and after rows at the end of the table were deleted.
+ */
+class CreateAllTest {
+
+    private TestDatabase database;
+    private PatientDao patientDao;
+    private TreatmentDao treatmentDao;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        this.database = new TestDatabase();
+        this.patientDao = new PatientDao(this.database.getConnectionPool());
+        this.treatmentDao = new TreatmentDao(this.database.getConnectionPool());
+        this.patientDao.setBatchSize(3);
+        this.treatmentDao.setBatchSize(3);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        this.database.close();
+    }
+
+    private static List<Patient> newPatients(int count, String firstName) {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            patients.add(new Patient(firstName + i, "Nachname" + i, LocalDate.of(1940, 1, 1).plusDays(i), "2",
+                    String.valueOf(i), "normal"));
+        }
+        return patients;
+    }
+
+    private void assertPersisted(List<Patient> patients) throws SQLException {
+        for (Patient patient : patients) {
+            Patient persisted = this.patientDao.reload(patient.getPid());
+            assertEquals(patient.getFirstName(), persisted.getFirstName());
+            assertEquals(patient.getSurname(), persisted.getSurname());
+        }
+    }
+
+    @Test
+    void idsAreAssignedInOrderAcrossBatches() throws SQLException {
+        // 8 patients are two full batches and one partial batch.
+        List<Patient> patients = newPatients(8, "Vorname");
+        this.patientDao.createAll(patients);
+
+        for (int i = 0; i < patients.size(); i++) {
+            assertEquals(i + 1, patients.get(i).getPid());
+        }
+        assertPersisted(patients);
+        assertEquals(8, this.patientDao.readAll().size());
+    }
+
+    @Test
+    void deletedIdsAreNotAssignedAgain() throws SQLException {
+        List<Patient> first = newPatients(4, "Erste");
+        this.patientDao.createAll(first);
+        this.patientDao.deleteById(first.get(3).getPid());
+
+        List<Patient> second = newPatients(4, "Zweite");
+        this.patientDao.createAll(second);
+
+        for (int i = 0; i < second.size(); i++) {
+            assertEquals(5 + i, second.get(i).getPid());
+        }
+        assertPersisted(second);
+    }
+
+    @Test
+    void treatmentIdsAreAssignedInOrder() throws SQLException {
+        Patient patient = this.patientDao.create(newPatients(1, "Vorname").get(0));
+        List<Treatment> treatments = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            treatments.add(new Treatment(patient.getPid(), LocalDate.of(2024, 1, 1).plusDays(i), LocalTime.of(8, 0),
+                    LocalTime.of(8, 30), "Behandlung " + i, ""));
+        }
+        this.treatmentDao.createAll(treatments);
+
+        for (Treatment treatment : treatments) {
+            assertEquals(treatment.getDescription(), this.treatmentDao.read(treatment.getTid()).getDescription());
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), treatments.stream().map(Treatment::getTid).toList());
+    }
+
+    @Test
+    void failedBatchRollsBackAllObjects() throws SQLException {
+        Patient patient = this.patientDao.create(newPatients(1, "Vorname").get(0));
+        List<Treatment> treatments = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // The last treatment belongs to a patient, who does not exist.
+            long pid = i == 4 ? patient.getPid() + 1 : patient.getPid();
+            treatments.add(new Treatment(pid, LocalDate.of(2024, 1, 1), LocalTime.of(8, 0), LocalTime.of(8, 30),
+                    "Behandlung " + i, ""));
+        }
+
+        assertThrows(SQLException.class, () -> this.treatmentDao.createAll(treatments));
+        assertEquals(0, this.treatmentDao.readAll().size());
+    }
+}
@@ -0,0 +1,101 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exports the patients and treatments of one database as compressed CSV and imports them into another one, in which
+ * the patients get other ids.
+ */
+class ExportImportTest {
+
+    @TempDir
+    Path directory;
+
+    private TestDatabase source;
+    private TestDatabase target;
+    private PatientDao targetPatientDao;
+    private TreatmentDao targetTreatmentDao;
+    private Importer importer;
+    private Path patientFile;
+    private Path treatmentFile;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        this.source = new TestDatabase();
+        PatientDao sourcePatientDao = new PatientDao(this.source.getConnectionPool());
+        TreatmentDao sourceTreatmentDao = new TreatmentDao(this.source.getConnectionPool());
+        Patient erika = sourcePatientDao.create(
+                new Patient("Erika", "Mustermann", LocalDate.of(1940, 5, 1), "3", "12", "normal"));
+        Patient max = sourcePatientDao.create(
+                new Patient("Max", "Müller, jun.", LocalDate.of(1938, 2, 7), "2", "13", "\"vermögend\""));
+        sourceTreatmentDao.create(new Treatment(erika.getPid(), LocalDate.of(2024, 3, 1), LocalTime.of(9, 0),
+                LocalTime.of(9, 30), "Waschen", "Hilfe beim Aufstehen"));
+        sourceTreatmentDao.create(new Treatment(max.getPid(), LocalDate.of(2024, 3, 2), LocalTime.of(14, 0),
+                LocalTime.of(15, 15), "Gespräch", "mehrzeilig\nmit Komma, und \"Zitat\""));
+
+        Exporter exporter = new Exporter(this.source.getConnectionPool());
+        this.patientFile = this.directory.resolve(Exporter.fileName("patienten", Exporter.Format.CSV, true));
+        this.treatmentFile = this.directory.resolve(Exporter.fileName("behandlungen", Exporter.Format.CSV, true));
+        assertEquals(2, exporter.exportPatients(this.patientFile, Exporter.Format.CSV, true, 0, null, null, null));
+        assertEquals(2, exporter.exportTreatments(this.treatmentFile, Exporter.Format.CSV, true, 0, null, null,
+                null));
+
+        this.target = new TestDatabase();
+        this.targetPatientDao = new PatientDao(this.target.getConnectionPool());
+        this.targetTreatmentDao = new TreatmentDao(this.target.getConnectionPool());
+        // Takes the pid 1, so the imported patients get other ids than in the source.
+        this.targetPatientDao.create(
+                new Patient("Hans", "Schmidt", LocalDate.of(1950, 1, 1), "1", "1", "normal"));
+        this.importer = new Importer(this.targetPatientDao, this.targetTreatmentDao, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        this.source.close();
+        this.target.close();
+    }
+
+    @Test
+    void treatmentsFollowTheirImportedPatients() throws IOException, SQLException {
+        Importer.Result patients = this.importer.importPatients(this.patientFile);
+        assertEquals(2, patients.getImportedRows());
+        assertEquals(Map.of(1L, 2L, 2L, 3L), patients.getGeneratedIds());
+        Patient max = this.targetPatientDao.reload(3);
+        assertEquals("Müller, jun.", max.getSurname());
+        assertEquals("\"vermögend\"", max.getAssets());
+
+        Importer.Result treatments = this.importer.importTreatments(this.treatmentFile,
+                patients.getGeneratedIds());
+        assertEquals(2, treatments.getImportedRows());
+        assertEquals(0, treatments.getRejectedRows());
+        List<Treatment> treatmentsOfMax = this.targetTreatmentDao.readTreatmentsByPid(3);
+        assertEquals(1, treatmentsOfMax.size());
+        assertEquals("mehrzeilig\nmit Komma, und \"Zitat\"", treatmentsOfMax.get(0).getRemarks());
+        assertEquals(LocalTime.of(15, 15), treatmentsOfMax.get(0).getLocalEnd());
+    }
+
+    @Test
+    void treatmentsOfUnknownPatientsAreRejected() throws IOException, SQLException {
+        // Without a mapping, the pids of the file are taken as they are and only patient 1 exists.
+        Importer.Result treatments = this.importer.importTreatments(this.treatmentFile, null);
+
+        assertEquals(1, treatments.getImportedRows());
+        assertEquals(1, treatments.getRejectedRows());
+        assertEquals(1, this.targetTreatmentDao.readTreatmentsByPid(1).size());
+    }
+}
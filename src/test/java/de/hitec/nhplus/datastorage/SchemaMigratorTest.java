@@ -0,0 +1,152 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Migrates a database with the schema of the first release, which has no table <code>schema_version</code> and
+ * stores dates and times as TEXT, to the latest version.
+ */
+class SchemaMigratorTest {
+
+    @TempDir
+    Path directory;
+
+    private String url;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        this.url = "jdbc:sqlite:" + this.directory.resolve("nursingHome.db");
+        this.connection = DriverManager.getConnection(this.url);
+        execute("CREATE TABLE patient (" +
+                "   pid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "   firstname TEXT NOT NULL, " +
+                "   surname TEXT NOT NULL, " +
+                "   dateOfBirth TEXT NOT NULL, " +
+                "   carelevel TEXT NOT NULL, " +
+                "   roomnumber TEXT NOT NULL, " +
+                "   assets TEXt NOT NULL" +
+                ")");
+        execute("CREATE TABLE treatment (" +
+                "   tid INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "   pid INTEGER NOT NULL, " +
+                "   treatment_date TEXT NOT NULL, " +
+                "   begin TEXT NOT NULL, " +
+                "   end TEXT NOT NULL, " +
+                "   description TEXT NOT NULL, " +
+                "   remark TEXT NOT NULL," +
+                "   FOREIGN KEY (pid) REFERENCES patient (pid) ON DELETE CASCADE " +
+                ")");
+        execute("INSERT INTO patient (firstname, surname, dateOfBirth, carelevel, roomnumber, assets) VALUES " +
+                "('Seppl', 'Herberger', '1945-12-01', '4', '202', 'vermögend'), " +
+                "('Martina', 'Gerdsen', '1954-08-12', '5', '010', 'arm')");
+        execute("INSERT INTO treatment (pid, treatment_date, begin, end, description, remark) VALUES " +
+                "(1, '2023-06-03', '11:00', '15:00', 'Gespräch', 'Der Patient hat enorme Angstgefühle'), " +
+                "(1, '2023-06-05', '11:00', '12:30', 'Gespräch', 'Patient irrt auf der Suche nach Sohn umher'), " +
+                "(2, '2023-06-30', '08:15', '08:45', 'Waschen', 'Hilfe beim Aufstehen')");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        this.connection.close();
+    }
+
+    @Test
+    void baselineIsMigratedToTheLatestVersion() throws SQLException {
+        SchemaMigrator.migrate(this.connection);
+
+        List<Long> versions = queryLongs("SELECT version FROM schema_version ORDER BY version");
+        assertEquals(SchemaMigrator.getLatestVersion(), versions.size());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(i + 1L, versions.get(i));
+        }
+        assertEquals(List.of(0L), queryLongs("SELECT COUNT(*) FROM pragma_foreign_key_check"));
+        assertEquals(List.of(1L), queryLongs("SELECT COUNT(*) FROM pragma_index_list('treatment') " +
+                "WHERE name = 'idx_treatment_pid'"));
+        assertEquals(List.of(1L), queryLongs("SELECT COUNT(*) FROM pragma_index_list('treatment') " +
+                "WHERE name = 'idx_treatment_date'"));
+    }
+
+    @Test
+    void datesAndTimesAreConverted() throws SQLException {
+        SchemaMigrator.migrate(this.connection);
+
+        assertEquals(List.of(LocalDate.of(1945, 12, 1).toEpochDay(), LocalDate.of(1954, 8, 12).toEpochDay()),
+                queryLongs("SELECT dateOfBirth FROM patient ORDER BY pid"));
+        assertEquals(List.of(LocalDate.of(2023, 6, 3).toEpochDay(), 660L, 900L),
+                queryLongs("SELECT treatment_date, begin, end FROM treatment WHERE tid = 1"));
+
+        ConnectionPool connectionPool = new ConnectionPool(this.url, 1);
+        try {
+            Patient patient = new PatientDao(connectionPool).read(2);
+            assertEquals("1954-08-12", patient.getDateOfBirth());
+            Treatment treatment = new TreatmentDao(connectionPool).read(3);
+            assertEquals(LocalDate.of(2023, 6, 30), treatment.getLocalDate());
+            assertEquals(LocalTime.of(8, 15), treatment.getLocalBegin());
+            assertEquals(LocalTime.of(8, 45), treatment.getLocalEnd());
+        } finally {
+            connectionPool.close();
+        }
+    }
+
+    @Test
+    void existingRowsAreIndexedAndSummed() throws SQLException {
+        SchemaMigrator.migrate(this.connection);
+
+        assertEquals(List.of(1L, 2L), queryLongs("SELECT rowid FROM treatment_fts WHERE treatment_fts MATCH " +
+                "'gesprach' ORDER BY rowid"));
+        assertEquals(List.of(1L, 202306L, 2L, 330L, 2L, 202306L, 1L, 30L),
+                queryLongs("SELECT pid, month, treatment_count, minutes FROM care_minutes_monthly ORDER BY pid"));
+    }
+
+    @Test
+    void migratingAgainChangesNothing() throws SQLException {
+        SchemaMigrator.migrate(this.connection);
+        SchemaMigrator.migrate(this.connection);
+
+        assertEquals(List.of((long) SchemaMigrator.getLatestVersion()),
+                queryLongs("SELECT COUNT(*) FROM schema_version"));
+        assertEquals(List.of(3L), queryLongs("SELECT COUNT(*) FROM treatment"));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * Returns all columns of all rows of the query, row by row.
+     */
+    private List<Long> queryLongs(String sql) throws SQLException {
+        List<Long> values = new ArrayList<>();
+        try (Statement statement = this.connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            int columnCount = result.getMetaData().getColumnCount();
+            while (result.next()) {
+                for (int column = 1; column <= columnCount; column++) {
+                    values.add(result.getLong(column));
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,37 @@
+package de.hitec.nhplus.datastorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Temporary SQLite database for the tests. The database file is created in the temporary directory and deleted
+ * together with its WAL files by <code>close()</code>.
+ */
+class TestDatabase implements AutoCloseable {
+
+    private final Path file;
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Creates an empty database and migrates it to the latest version.
+     */
+    TestDatabase() throws IOException, SQLException {
+        this.file = Files.createTempFile("nhplus-test", ".db");
+        this.connectionPool = new ConnectionPool("jdbc:sqlite:" + this.file, 2);
+        SchemaMigrator.migrate(this.connectionPool);
+    }
+
+    ConnectionPool getConnectionPool() {
+        return this.connectionPool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.connectionPool.close();
+        Files.deleteIfExists(this.file);
+        Files.deleteIfExists(Path.of(this.file + "-wal"));
+        Files.deleteIfExists(Path.of(this.file + "-shm"));
+    }
+}
@@ -0,0 +1,89 @@
+package de.hitec.nhplus.datastorage;
+
+import de.hitec.nhplus.model.Patient;
+import de.hitec.nhplus.model.Treatment;
+import de.hitec.nhplus.model.TreatmentSearchHit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks, that the text of the search field is always turned into a valid FTS5 query, in which quotes and FTS5
+ * operators are searched as normal words.
+ */
+class TreatmentDaoSearchTest {
+
+    private TestDatabase database;
+    private TreatmentDao dao;
+    private long wundversorgungTid;
+    private long nearTid;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        this.database = new TestDatabase();
+        this.dao = new TreatmentDao(this.database.getConnectionPool());
+        Patient patient = new PatientDao(this.database.getConnectionPool()).create(
+                new Patient("Erika", "Mustermann", LocalDate.of(1940, 5, 1), "3", "12", "normal"));
+        this.wundversorgungTid = createTreatment(patient, "Wundversorgung \"links\"", "Verband AND Salbe").getTid();
+        this.nearTid = createTreatment(patient, "Gespräch", "NEAR(Fenster) - Sitzplatz*").getTid();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        this.database.close();
+    }
+
+    private Treatment createTreatment(Patient patient, String description, String remark) throws SQLException {
+        return this.dao.create(new Treatment(patient.getPid(), LocalDate.of(2024, 3, 1), LocalTime.of(9, 0),
+                LocalTime.of(9, 30), description, remark));
+    }
+
+    @Test
+    void wordsAreQuotedAndTheLastOneIsAPrefix() {
+        assertEquals("\"Wund\"*", TreatmentDao.toMatchQuery("Wund"));
+        assertEquals("\"Verband\" \"Sal\"*", TreatmentDao.toMatchQuery("  Verband\t Sal "));
+    }
+
+    @Test
+    void quotesAreDoubled() {
+        assertEquals("\"\"\"links\"\"\"*", TreatmentDao.toMatchQuery("\"links\""));
+        assertEquals("\"a\"\"b\"*", TreatmentDao.toMatchQuery("a\"b"));
+    }
+
+    @Test
+    void operatorsAreQuoted() {
+        assertEquals("\"Verband\" \"AND\" \"NOT\" \"Salbe\"*", TreatmentDao.toMatchQuery("Verband AND NOT Salbe"));
+        assertEquals("\"NEAR(Fenster)\" \"-\" \"remark:x\" \"*\"*",
+                TreatmentDao.toMatchQuery("NEAR(Fenster) - remark:x *"));
+    }
+
+    @Test
+    void blankTextHasNoQuery() {
+        assertNull(TreatmentDao.toMatchQuery(""));
+        assertNull(TreatmentDao.toMatchQuery(" \t "));
+    }
+
+    @Test
+    void searchFindsQuotesAndOperatorsAsWords() throws SQLException {
+        assertEquals(List.of(this.wundversorgungTid), search("\"links\""));
+        assertEquals(List.of(this.wundversorgungTid), search("Verband AND"));
+        assertEquals(List.of(this.wundversorgungTid), search("wundvers"));
+        assertEquals(List.of(this.nearTid), search("NEAR(Fenster"));
+        assertEquals(List.of(this.nearTid), search("gesprach - sitzplatz*"));
+        assertEquals(List.of(), search("Verband NOT"));
+        assertEquals(List.of(), search("\""));
+    }
+
+    private List<Long> search(String text) throws SQLException {
+        return this.dao.search(text, 10).stream().map(TreatmentSearchHit::getTid).toList();
+    }
+}
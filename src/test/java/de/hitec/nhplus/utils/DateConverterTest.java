@@ -0,0 +1,72 @@
+package de.hitec.nhplus.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the hand written parsing and formatting of <code>DateConverter</code> against
+ * <code>DateTimeFormatter</code>, which it replaced.
+ */
+class DateConverterTest {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    @Test
+    void datesRoundTrip() {
+        // 2023 and 2024 cover a common and a leap year.
+        for (LocalDate date = LocalDate.of(2023, 1, 1); date.getYear() < 2025; date = date.plusDays(1)) {
+            String text = DateConverter.convertLocalDateToString(date);
+            assertEquals(date.format(DATE_FORMATTER), text);
+            assertEquals(date, DateConverter.convertStringToLocalDate(text));
+        }
+    }
+
+    @Test
+    void dayAfterTheEndOfTheMonthIsClampedLikeTheFormatter() {
+        assertEquals(LocalDate.of(2023, 2, 28), DateConverter.convertStringToLocalDate("2023-02-30"));
+        assertEquals(LocalDate.of(2024, 2, 29), DateConverter.convertStringToLocalDate("2024-02-31"));
+        assertEquals(LocalDate.of(2023, 4, 30), DateConverter.convertStringToLocalDate("2023-04-31"));
+        for (String text : new String[]{"2023-02-29", "2023-02-30", "2024-02-30", "2023-06-31", "2100-02-29"}) {
+            assertEquals(LocalDate.parse(text, DATE_FORMATTER), DateConverter.convertStringToLocalDate(text), text);
+        }
+    }
+
+    @Test
+    void invalidDatesAreRejected() {
+        for (String text : new String[]{"2023-02-32", "2023-13-01", "2023-00-10", "2023-01-00", "2023-1-01",
+                "2023/01/01", "20x3-01-01", "", "0000-01-01"}) {
+            assertThrows(DateTimeParseException.class, () -> DateConverter.convertStringToLocalDate(text), text);
+        }
+    }
+
+    @Test
+    void timesRoundTrip() {
+        for (int minutes = 0; minutes < 24 * 60; minutes++) {
+            LocalTime time = DateConverter.convertMinutesToLocalTime(minutes);
+            String text = DateConverter.convertLocalTimeToString(time);
+            assertEquals(time.format(TIME_FORMATTER), text);
+            assertEquals(time, DateConverter.convertStringToLocalTime(text));
+            assertEquals(minutes, DateConverter.convertLocalTimeToMinutes(time));
+        }
+    }
+
+    @Test
+    void midnightAtTheEndOfTheDayIsAcceptedLikeTheFormatter() {
+        assertEquals(LocalTime.parse("24:00", TIME_FORMATTER), DateConverter.convertStringToLocalTime("24:00"));
+    }
+
+    @Test
+    void invalidTimesAreRejected() {
+        for (String text : new String[]{"24:01", "12:60", "1:30", "12-30", "1a:30", ""}) {
+            assertThrows(DateTimeParseException.class, () -> DateConverter.convertStringToLocalTime(text), text);
+        }
+    }
+}